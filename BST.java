@@ -1,9 +1,18 @@
 package project4;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * An implementation of a binary search tree. The elements are ordered using
@@ -14,6 +23,12 @@ import java.util.Objects;
  * for unbalanced trees) time cost for the basic operations (add, remove and
  * contains).
  * 
+ * A tree constructed in balanced mode rebalances itself with AVL rotations
+ * after every add and remove, so H stays within 1.44 logN regardless of the
+ * order in which the elements arrive. A tree constructed in the default
+ * (unbalanced) mode never rotates, so its shape is determined entirely by the
+ * insertion order.
+ * 
  * This class implements many of the methods provided by the Java framework's
  * TreeSet class.
  * 
@@ -47,10 +62,20 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
          * Parent Node reference for a Node
          */
         Node parent;
+        /**
+         * Number of nodes in the subtree rooted at this Node
+         */
+        int size;
+        /**
+         * Sum of the hash codes of the data values in the subtree rooted at this Node
+         */
+        int hash;
 
         public Node(E data, int height) {
             this.data = data;
             this.height = height;
+            this.size = 1;
+            this.hash = data.hashCode();
         }
 
         /**
@@ -72,9 +97,32 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
      */
     private int size;
     /**
-     * Helper variable used by the remove methods
+     * First int of a snapshot written by writeSnapshot
+     */
+    private static final int SNAPSHOT_MAGIC = 0x42535453;
+    /**
+     * Version of the snapshot format written by writeSnapshot; version 2 stores
+     * the supplies of a RestStop as one count per Supply
+     */
+    private static final int SNAPSHOT_VERSION = 2;
+    /**
+     * Snapshot flag of a node that has a left child
+     */
+    private static final int HAS_LEFT = 1;
+    /**
+     * Snapshot flag of a node that has a right child
+     */
+    private static final int HAS_RIGHT = 2;
+    /**
+     * Number of modifications made to this tree, used by iterators to detect
+     * concurrent modification and by callers to detect stale results
+     */
+    private int modCount;
+    /**
+     * True if this tree rebalances itself with AVL rotations after every add and
+     * remove
      */
-    private boolean found;
+    private final boolean balanced;
 
     /**
      * Constructs a new, empty tree, sorted according to the natural ordering of its
@@ -84,57 +132,354 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
      */
     BST() {
 
+        this(false);
+
+    }
+
+    /**
+     * Constructs a new, empty tree, sorted according to the natural ordering of its
+     * elements. If balanced is true the tree keeps its height at O(logN) by
+     * rotating nodes on add and remove; otherwise the shape of the tree follows
+     * the insertion order.
+     * 
+     * @param balanced - true if this tree should rebalance itself
+     */
+    public BST(boolean balanced) {
+
         root = null;
+        this.balanced = balanced;
 
     }
 
     /**
      * Constructs a new tree containing the elements in the specified collection,
      * sorted according to the natural ordering of its elements. All elements
-     * inserted into the tree must implement the Comparable interface.
+     * inserted into the tree must implement the Comparable interface. The
+     * specified collection is not modified.
      * 
      * @param collection - collection whose elements will comprise the new tree
      * @throws NullPointerException - if the specified collection is null
      */
     public BST(E[] collection) throws NullPointerException {
+        this(collection, false);
+    }
+
+    /**
+     * Constructs a new tree containing the elements in the specified collection,
+     * sorted according to the natural ordering of its elements, in balanced or
+     * unbalanced mode. The specified collection is not modified.
+     * 
+     * @param collection - collection whose elements will comprise the new tree
+     * @param balanced   - true if this tree should rebalance itself
+     * @throws NullPointerException - if the specified collection or any of its
+     *                              elements is null
+     */
+    public BST(E[] collection, boolean balanced) throws NullPointerException {
+        this.balanced = balanced;
+        if (collection == null)
+            throw new NullPointerException("collection is null");
+
+        build(collection.clone(), false);
+
+    }
+
+    /**
+     * Returns a new tree containing the elements of an array that is already in
+     * ascending order. The tree is built directly in O(N) time without comparing
+     * elements against the tree, and the array is not modified. Equal adjacent
+     * elements are stored once.
+     * 
+     * @param <T>      - type of the elements
+     * @param sorted   - elements in ascending order
+     * @param balanced - true if the new tree should rebalance itself
+     * @return a new tree containing the elements of sorted
+     * @throws NullPointerException     - if the array or any of its elements is
+     *                                  null
+     * @throws IllegalArgumentException - if the array is not in ascending order
+     */
+    public static <T extends Comparable<T>> BST<T> fromSorted(T[] sorted, boolean balanced)
+            throws NullPointerException, IllegalArgumentException {
+        if (sorted == null)
+            throw new NullPointerException("collection is null");
+
+        BST<T> tree = new BST<T>(balanced);
+        if (!tree.isSorted(sorted, sorted.length))
+            throw new IllegalArgumentException("elements are not in ascending order");
+        tree.build(sorted, true);
+        return tree;
+    }
+
+    /**
+     * Returns a new tree containing the elements of a stream that produces them in
+     * ascending order. The tree is built directly in O(N) time once the stream is
+     * drained. Equal adjacent elements are stored once.
+     * 
+     * @param <T>      - type of the elements
+     * @param sorted   - stream of elements in ascending order
+     * @param balanced - true if the new tree should rebalance itself
+     * @return a new tree containing the elements of sorted
+     * @throws NullPointerException     - if the stream or any of its elements is
+     *                                  null
+     * @throws IllegalArgumentException - if the elements are not in ascending
+     *                                  order
+     */
+    public static <T extends Comparable<T>> BST<T> fromSorted(Stream<T> sorted, boolean balanced)
+            throws NullPointerException, IllegalArgumentException {
+        if (sorted == null)
+            throw new NullPointerException("collection is null");
+
+        Object[] elements = sorted.toArray();
+        BST<T> tree = new BST<T>(balanced);
+        if (!tree.isSorted(elements, elements.length))
+            throw new IllegalArgumentException("elements are not in ascending order");
+        tree.build(elements, true);
+        return tree;
+    }
+
+    /**
+     * Returns a new tree containing the elements of a collection in any order. If
+     * the collection already iterates in ascending order (for example a TreeSet or
+     * another BST) the tree is built in O(N) time, otherwise a copy of the
+     * elements is sorted first. The collection is not modified.
+     * 
+     * @param <T>        - type of the elements
+     * @param collection - collection whose elements will comprise the new tree
+     * @param balanced   - true if the new tree should rebalance itself
+     * @return a new tree containing the elements of collection
+     * @throws NullPointerException - if the collection or any of its elements is
+     *                              null
+     */
+    public static <T extends Comparable<T>> BST<T> fromCollection(Collection<? extends T> collection,
+            boolean balanced) throws NullPointerException {
         if (collection == null)
             throw new NullPointerException("collection is null");
 
-        Arrays.sort(collection);
+        BST<T> tree = new BST<T>(balanced);
+        tree.build(collection.toArray(), false);
+        return tree;
+    }
+
+    /**
+     * Helper method for the bulk constructors that replaces the contents of this
+     * tree with the elements of an array, linking the nodes directly instead of
+     * adding the elements one at a time
+     * 
+     * @param elements - elements of the new tree; may be reordered and compacted
+     *                 unless sorted is true
+     * @param sorted   - true if elements is known to be in ascending order, in which
+     *                 case it is left untouched
+     */
+    @SuppressWarnings("unchecked")
+    private void build(Object[] elements, boolean sorted) {
+
+        int length = elements.length;
+        for (int i = 0; i < length; i++) {
+            if (elements[i] == null)
+                throw new NullPointerException("added value cannot be null");
+        }
+        if (!sorted && !isSorted(elements, length))
+            Arrays.sort(elements);
+
+        /**
+         * Collapses runs of equal elements, keeping the last one as add would
+         */
+        Object[] distinct = elements;
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (i + 1 < length && ((E) elements[i]).compareTo((E) elements[i + 1]) == 0) {
+                if (distinct == elements && sorted)
+                    distinct = Arrays.copyOf(elements, length);
+                continue;
+            }
+            distinct[count++] = elements[i];
+        }
+
         /**
          * Adding elements to the set so the height of this BST is approximately logN
          */
-        binSearchAdd(collection, 0, collection.length - 1);
+        root = binSearchAdd(distinct, 0, count - 1, null);
+        size = count;
+        modCount++;
 
     }
 
     /**
-     * Recursive method to add elements from the collection to this BST<E> object in
-     * order to keep the height of the tree approximately logN
+     * Returns true if the first length elements of an array are in ascending
+     * order, allowing equal adjacent elements
      * 
-     * @param collection - collection whose elements will comprise the new tree
+     * @param elements - elements to be checked
+     * @param length   - number of elements to be checked
+     * @return true if the elements are in ascending order
+     */
+    @SuppressWarnings("unchecked")
+    private boolean isSorted(Object[] elements, int length) {
+        for (int i = 1; i < length; i++) {
+            if (((E) elements[i - 1]).compareTo((E) elements[i]) > 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Recursive method to link the elements of a sorted array into a subtree whose
+     * root is the middle element, in order to keep the height of the tree
+     * approximately logN
+     * 
+     * @param collection - distinct elements in ascending order
      * @param low        - first index reference of the collection
      * @param high       - last index reference of the collection
-     * @return root node reference of the tree;
+     * @param parent     - parent of the subtree being built
+     * @return root node reference of the subtree
      */
-    private Node binSearchAdd(E[] collection, int low, int high) {
+    @SuppressWarnings("unchecked")
+    private Node binSearchAdd(Object[] collection, int low, int high, Node parent) {
 
         if (low > high) {
             return null;
         }
-        int mid = (low + high) / 2;
-        this.add(collection[mid]);
+        int mid = (low + high) >>> 1;
+        Node n = new Node((E) collection[mid], 1);
+        n.parent = parent;
         /**
-         * Calls on right half
+         * Calls on left half
          */
-        binSearchAdd(collection, mid + 1, high);
+        n.left = binSearchAdd(collection, low, mid - 1, n);
         /**
-         * Calls on left half
+         * Calls on right half
          */
-        binSearchAdd(collection, low, mid - 1);
+        n.right = binSearchAdd(collection, mid + 1, high, n);
+        update(n);
+
+        return n;
+
+    }
+
+    /**
+     * Writes this tree to a binary snapshot: a header with the format version, the
+     * mode and the number of elements, followed by the nodes in pre-order, each as
+     * a byte of child-presence flags and its encoded element. The tree is walked
+     * without recursion, so deep unbalanced trees can be written.
+     * 
+     * @param out   - output the snapshot is written to
+     * @param codec - encoding of the elements
+     * @throws IOException - if the snapshot cannot be written
+     */
+    public void writeSnapshot(DataOutput out, ElementCodec<? super E> codec) throws IOException {
+
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeBoolean(balanced);
+        out.writeInt(size);
+
+        ArrayList<Node> stack = new ArrayList<Node>();
+        if (root != null)
+            stack.add(root);
+        while (!stack.isEmpty()) {
+            Node n = stack.remove(stack.size() - 1);
+            out.writeByte((n.left != null ? HAS_LEFT : 0) | (n.right != null ? HAS_RIGHT : 0));
+            codec.write(n.data, out);
+            if (n.right != null)
+                stack.add(n.right);
+            if (n.left != null)
+                stack.add(n.left);
+        }
+    }
+
+    /**
+     * Reads a tree from a snapshot written by writeSnapshot. The tree is rebuilt
+     * in the recorded shape and mode in a single pass over the input, without
+     * comparing any elements.
+     * 
+     * @param <T>   - type of the elements
+     * @param in    - input the snapshot is read from
+     * @param codec - encoding of the elements
+     * @return a new tree equal in shape and contents to the tree written
+     * @throws IOException - if the snapshot cannot be read or is not valid
+     */
+    public static <T extends Comparable<T>> BST<T> readSnapshot(DataInput in, ElementCodec<? extends T> codec)
+            throws IOException {
+
+        checkSnapshotHeader(in);
+        BST<T> tree = new BST<T>(in.readBoolean());
+        tree.readNodes(in, codec);
+        return tree;
+    }
+
+    /**
+     * Checks the magic number and format version at the start of a snapshot
+     * 
+     * @param in - input the snapshot is read from
+     * @throws IOException - if the input is not a snapshot of a supported version
+     */
+    protected static void checkSnapshotHeader(DataInput in) throws IOException {
+
+        if (in.readInt() != SNAPSHOT_MAGIC)
+            throw new IOException("not a tree snapshot");
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION)
+            throw new IOException("unsupported snapshot version " + version);
+    }
+
+    /**
+     * Replaces the contents of this tree with the nodes of a snapshot, read after
+     * its header and mode. Nodes are linked in the order they are read, and the
+     * heights, sizes and hash codes are then computed bottom-up in reverse order.
+     * 
+     * @param in    - input the snapshot is read from
+     * @param codec - encoding of the elements
+     * @throws IOException - if the nodes cannot be read or do not form a tree
+     */
+    protected void readNodes(DataInput in, ElementCodec<? extends E> codec) throws IOException {
 
-        return root;
+        int count = in.readInt();
+        if (count < 0)
+            throw new IOException("corrupt snapshot: negative size");
 
+        ArrayList<Node> nodes = new ArrayList<Node>(Math.min(count, 1 << 16));
+        /**
+         * Nodes whose right child comes after the nodes of their left subtree
+         */
+        ArrayList<Node> pendingRight = new ArrayList<Node>();
+        Node newRoot = null;
+        Node previous = null;
+        int flags = 0;
+        for (int i = 0; i < count; i++) {
+            int nodeFlags = in.readUnsignedByte();
+            E data = codec.read(in);
+            if (data == null || (nodeFlags & ~(HAS_LEFT | HAS_RIGHT)) != 0)
+                throw new IOException("corrupt snapshot: bad node " + i);
+            Node n = new Node(data, 1);
+
+            if (previous == null) {
+                newRoot = n;
+            } else if ((flags & HAS_LEFT) != 0) {
+                if ((flags & HAS_RIGHT) != 0)
+                    pendingRight.add(previous);
+                previous.left = n;
+                n.parent = previous;
+            } else if ((flags & HAS_RIGHT) != 0) {
+                previous.right = n;
+                n.parent = previous;
+            } else {
+                if (pendingRight.isEmpty())
+                    throw new IOException("corrupt snapshot: too many nodes");
+                Node parent = pendingRight.remove(pendingRight.size() - 1);
+                parent.right = n;
+                n.parent = parent;
+            }
+            nodes.add(n);
+            previous = n;
+            flags = nodeFlags;
+        }
+        if (count > 0 && (flags != 0 || !pendingRight.isEmpty()))
+            throw new IOException("corrupt snapshot: missing nodes");
+
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            update(nodes.get(i));
+        }
+        root = newRoot;
+        size = count;
+        modCount++;
     }
 
     public int bar (Node n ) {
@@ -146,6 +491,27 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
         return val + bar(n.left) + bar(n.right); 
     }
 
+    /**
+     * Returns true if this tree rebalances itself on add and remove
+     * 
+     * @return true if this tree was constructed in balanced mode
+     */
+    public boolean isBalanced() {
+        return balanced;
+    }
+
+    /**
+     * Returns the version of this tree: a counter that changes on every add,
+     * remove and clear that changes the tree, including an add that replaces an
+     * element with an equal one. Results computed from the tree are still valid
+     * as long as its version has not changed.
+     * 
+     * @return number of modifications made to this tree so far
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
     /**
      * Returns the root node of this BST<E> object
      * Must be public to allow access for reference by external classes
@@ -178,6 +544,7 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
              */
             root = new Node(e, 1);
             size++;
+            modCount++;
             return true;
         }
         Node current = root;
@@ -190,8 +557,9 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
                 if (current.left == null) {
                     current.left = new Node(e, 1);
                     size++;
+                    modCount++;
                     current.left.parent = current;
-                    setHeightAdd(current);
+                    rebalanceUp(current);
                     return true;
                 } else {
                     current = current.left;
@@ -203,14 +571,22 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
                 if (current.right == null) {
                     current.right = new Node(e, 1);
                     size++;
+                    modCount++;
                     current.right.parent = current;
-                    setHeightAdd(current);
+                    rebalanceUp(current);
                     return true;
                 } else {
                     current = current.right;
                 }
             } else {
-                current.data = e;
+                if (current.data != e) {
+                    current.data = e;
+                    modCount++;
+                    /**
+                     * Refreshes the cached hash codes above the replaced value
+                     */
+                    rebalanceUp(current);
+                }
                 if (Objects.equals(current.data, e)) {
                     /**
                      * Duplicate
@@ -227,42 +603,149 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
     }
 
     /**
-     * Helper method for add method to set the height of each node
+     * Helper method for add and remove to restore the height of every node on the
+     * path from n up to the root, rotating any node that has become unbalanced
+     * when this tree is in balanced mode
      * 
-     * @param n - Parent of leaf node
+     * @param n - lowest node whose children changed
      */
-    private void setHeightAdd(Node n) {
-        /**
-         * If parent node is null, exit method by returning.
-         * Base case
-         */
-        if (n == null) {
-            return;
+    private void rebalanceUp(Node n) {
+        while (n != null) {
+            update(n);
+            if (balanced)
+                n = rebalance(n);
+            n = n.parent;
         }
-        /**
-         * Recursively goes up the BST and compares left and right child heights to set
-         * parent heights additively until base case (root node's parent is null)
-         */
-        if (n.left != null && n.right != null) {
-            if (n.height == n.left.height) {
-                n.height++;
-                setHeightAdd(n.parent);
-            } else if (n.height == n.right.height) {
-                n.height++;
-                setHeightAdd(n.parent);
-            }
-        } else if (n.left != null && n.right == null) {
-            if (n.height == n.left.height) {
-                n.height++;
-                setHeightAdd(n.parent);
-            }
-        } else if (n.left == null && n.right != null) {
-            if (n.height == n.right.height) {
-                n.height++;
-                setHeightAdd(n.parent);
-            }
+    }
+
+    /**
+     * Recomputes the height, subtree size and subtree hash code of a node from its
+     * children
+     * 
+     * @param n - node to be updated
+     */
+    private void update(Node n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+        n.size = 1 + size(n.left) + size(n.right);
+        n.hash = n.data.hashCode();
+        if (n.left != null)
+            n.hash += n.left.hash;
+        if (n.right != null)
+            n.hash += n.right.hash;
+    }
+
+    /**
+     * Returns the height of a subtree
+     * 
+     * @param n - root of the subtree
+     * @return height of the subtree or zero if n is null
+     */
+    private int height(Node n) {
+        if (n == null)
+            return 0;
+        return n.height;
+    }
+
+    /**
+     * Returns the number of nodes in a subtree
+     * 
+     * @param n - root of the subtree
+     * @return size of the subtree or zero if n is null
+     */
+    private int size(Node n) {
+        if (n == null)
+            return 0;
+        return n.size;
+    }
+
+    /**
+     * Applies the AVL single or double rotation that restores the balance of a
+     * node whose subtrees differ in height by two
+     * 
+     * @param n - node to be rebalanced
+     * @return root of the rebalanced subtree
+     */
+    private Node rebalance(Node n) {
+        int balance = height(n.left) - height(n.right);
+        if (balance > 1) {
+            /**
+             * Left-right case is reduced to the left-left case first
+             */
+            if (height(n.left.left) < height(n.left.right))
+                rotateLeft(n.left);
+            return rotateRight(n);
+        } else if (balance < -1) {
+            /**
+             * Right-left case is reduced to the right-right case first
+             */
+            if (height(n.right.right) < height(n.right.left))
+                rotateRight(n.right);
+            return rotateLeft(n);
         }
+        return n;
+    }
+
+    /**
+     * Rotates the subtree rooted at n to the left, so that n's right child
+     * becomes the root of the subtree
+     * 
+     * @param n - root of the subtree to be rotated
+     * @return new root of the subtree
+     */
+    private Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        if (r.left != null)
+            r.left.parent = n;
+        replaceChild(n.parent, n, r);
+        r.left = n;
+        n.parent = r;
+        update(n);
+        update(r);
+        return r;
+    }
 
+    /**
+     * Rotates the subtree rooted at n to the right, so that n's left child
+     * becomes the root of the subtree
+     * 
+     * @param n - root of the subtree to be rotated
+     * @return new root of the subtree
+     */
+    private Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        if (l.right != null)
+            l.right.parent = n;
+        replaceChild(n.parent, n, l);
+        l.right = n;
+        n.parent = l;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    /**
+     * Replaces the child reference of parent that points at oldChild with
+     * newChild, updating the root reference if oldChild is the root
+     * 
+     * @param parent   - parent of oldChild, or null if oldChild is the root
+     * @param oldChild - child to be replaced
+     * @param newChild - replacement child, may be null
+     */
+    private void replaceChild(Node parent, Node oldChild, Node newChild) {
+        if (parent == null) {
+            /**
+             * The subtree may be detached from the tree during split and join
+             */
+            if (root == oldChild)
+                root = newChild;
+        } else if (parent.left == oldChild)
+            parent.left = newChild;
+        else
+            parent.right = newChild;
+        if (newChild != null)
+            newChild.parent = parent;
     }
 
     /**
@@ -284,11 +767,11 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
             throw new NullPointerException("object cannot be null");
 
         try {
-            root = remove(root, o);
-            if (found)
-                return true;
-            else
+            Node n = contains(root, o);
+            if (n == null)
                 return false;
+            removeNode(n);
+            return true;
         } catch (ClassCastException ex) {
             throw new ClassCastException("types not the same");
         }
@@ -296,93 +779,485 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
     }
 
     /**
-     * Recursive helper method for remove method
-     * Suppresses any unchecked cast warnings
-     * 
-     * @param n - root node reference
-     * @param o - object to be removed from this set, if present
-     * @return node that replaces removed object
+     * Helper method for remove method that unlinks a node from this tree
      * 
+     * @param n - node to be removed
      */
-    @SuppressWarnings("unchecked")
-    private Node remove(Node n, Object o) {
+    private void removeNode(Node n) {
 
-        found = false;
+        if (n.left != null && n.right != null) {
+            /**
+             * Successor takes the place of the removed value, and the successor's node
+             * (which has no left child) is unlinked instead
+             */
+            Node successor = n.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            n.data = successor.data;
+            n = successor;
+        }
+        Node child = n.left != null ? n.left : n.right;
+        Node parent = n.parent;
+        replaceChild(parent, n, child);
+        size--;
+        modCount++;
+        /**
+         * Sets heights for the ancestors of the removed node
+         */
+        rebalanceUp(parent);
 
-        E val = (E) o;
-        Node temp = null;
+    }
 
-        if (n == null) {
-            return n;
+    /**
+     * Removes all elements greater than or equal to the given element from this
+     * tree and returns them as a new tree. In balanced mode this takes O(logN)
+     * time because whole subtrees are moved rather than copied.
+     * 
+     * @param e - the value to split at
+     * @return a new tree, in the same mode as this one, holding the elements of
+     *         this tree greater than or equal to e
+     * @throws ClassCastException   - if the specified element cannot be compared
+     *                              with the elements currently in the set
+     * @throws NullPointerException - if the specified element is null
+     */
+    public BST<E> split(E e) throws ClassCastException, NullPointerException {
+
+        if (e == null)
+            throw new NullPointerException("element cannot be null");
+
+        BST<E> tail = new BST<E>(balanced);
+        try {
+            Split parts = split(root, e);
+            if (parts.match != null)
+                parts.right = join(null, parts.match, parts.right);
+            root = parts.left;
+            size = size(root);
+            modCount++;
+            tail.root = parts.right;
+            tail.size = size(tail.root);
+        } catch (ClassCastException ex) {
+            throw new ClassCastException("types not the same");
         }
+        return tail;
 
-        if (n.compareTo(val) > 0)
-            n.left = remove(n.left, o);
-        else if (n.compareTo(val) < 0)
-            n.right = remove(n.right, o);
-        else {
-            n.data = val;
-            if (Objects.equals(n.data, val)) {
-                if (n.left == null) {
-                    found = true;
-                    size--;
-                    return n.right;
-                } else if (n.right == null) {
-                    found = true;
-                    size--;
-                    return n.left;
-                }
-                /**
-                 * Successor
-                 */
-                temp = n.right;
-                E min = temp.data;
-                while (temp.left != null) {
-                    temp = temp.left;
-                }
-                min = temp.data;
+    }
 
-                n.data = min;
+    /**
+     * Moves all elements of the other tree, which must all be greater than the
+     * elements of this tree, to the end of this tree. The other tree is left
+     * empty. When both trees are in balanced mode this takes O(logN) time. If this
+     * tree is balanced and the other is not, the other tree is first rebuilt as a
+     * balanced tree in O(M) time so the joined tree stays balanced.
+     * 
+     * @param other - tree whose elements all follow the elements of this tree
+     * @throws NullPointerException     - if other is null
+     * @throws IllegalArgumentException - if the trees overlap
+     */
+    public void join(BST<E> other) throws NullPointerException, IllegalArgumentException {
 
-                n.right = remove(n.right, n.data);
-            }
+        if (other == null)
+            throw new NullPointerException("tree is null");
+        if (other == this || other.root == null)
+            return;
+        if (root != null && last().compareTo(other.first()) >= 0)
+            throw new IllegalArgumentException("trees overlap");
+
+        if (balanced && !other.balanced) {
+            Node right = balancedRoot(other);
+            other.clear();
+            root = join(root, right);
+            size = size(root);
+            modCount++;
+            return;
         }
+
         /**
-         * Sets height for parent node of removed node
+         * The smallest node of the other tree becomes the node joining the two trees
          */
-        setHeightRemove(n);
+        Node k = other.root;
+        while (k.left != null) {
+            k = k.left;
+        }
+        other.removeNode(k);
+        Node right = other.root;
+        other.clear();
+        if (right != null)
+            right.parent = null;
 
-        return n;
+        root = join(root, k, right);
+        size = size(root);
+        modCount++;
+
+    }
+
+    /**
+     * Adds all elements of the other tree to this tree, leaving the other tree
+     * unchanged. In balanced mode the trees are combined structurally by splitting
+     * this tree around the elements of the other, which costs O(M log(N/M + 1))
+     * for M elements in the other tree. In unbalanced mode the elements are added
+     * one at a time so the shape of this tree keeps following insertion order.
+     * 
+     * @param other - tree whose elements are to be added
+     * @return true if this tree changed as a result of the call
+     * @throws NullPointerException - if other is null
+     */
+    public boolean union(BST<E> other) throws NullPointerException {
+
+        if (other == null)
+            throw new NullPointerException("tree is null");
+        if (other == this)
+            return false;
+
+        int before = size;
+        if (balanced) {
+            root = union(root, balancedRoot(other));
+            size = size(root);
+            modCount++;
+        } else {
+            for (E e : other) {
+                add(e);
+            }
+        }
+        return size != before;
+
+    }
+
+    /**
+     * Removes from this tree all elements that are not contained in the other
+     * tree, leaving the other tree unchanged. In balanced mode this costs
+     * O(M log(N/M + 1)) for M elements in the other tree.
+     * 
+     * @param other - tree whose elements are to be retained
+     * @return true if this tree changed as a result of the call
+     * @throws NullPointerException - if other is null
+     */
+    public boolean intersect(BST<E> other) throws NullPointerException {
+
+        if (other == null)
+            throw new NullPointerException("tree is null");
+        if (other == this)
+            return false;
+
+        int before = size;
+        if (balanced) {
+            root = intersect(root, balancedRoot(other));
+            size = size(root);
+            modCount++;
+        } else {
+            ArrayList<E> missing = new ArrayList<E>();
+            for (E e : this) {
+                if (!other.contains(e))
+                    missing.add(e);
+            }
+            for (E e : missing) {
+                remove(e);
+            }
+        }
+        return size != before;
+
+    }
+
+    /**
+     * Removes from this tree all elements that are contained in the other tree,
+     * leaving the other tree unchanged. In balanced mode this costs
+     * O(M log(N/M + 1)) for M elements in the other tree.
+     * 
+     * @param other - tree whose elements are to be removed
+     * @return true if this tree changed as a result of the call
+     * @throws NullPointerException - if other is null
+     */
+    public boolean difference(BST<E> other) throws NullPointerException {
+
+        if (other == null)
+            throw new NullPointerException("tree is null");
+        if (other == this) {
+            boolean changed = size > 0;
+            clear();
+            return changed;
+        }
+
+        int before = size;
+        if (balanced) {
+            root = difference(root, balancedRoot(other));
+            size = size(root);
+            modCount++;
+        } else {
+            for (E e : other) {
+                remove(e);
+            }
+        }
+        return size != before;
 
     }
 
     /**
-     * Helper method for setting node heights for the remove method
+     * Returns the root of the other tree if it is balanced, or of a balanced copy
+     * of it otherwise, so the recursion over its nodes stays O(logM) deep
      * 
-     * @param n - parent of removed node
+     * @param other - tree to be read
+     * @return root of a balanced tree with the elements of other
      */
-    private void setHeightRemove(Node n) {
+    private Node balancedRoot(BST<E> other) {
+        if (other.balanced)
+            return other.root;
+        Object[] elements = new Object[other.size];
+        int i = 0;
+        for (E e : other) {
+            elements[i++] = e;
+        }
+        return binSearchAdd(elements, 0, other.size - 1, null);
+    }
+
+    /**
+     * The three parts of a subtree produced by splitting it at an element
+     */
+    private class Split {
         /**
-         * Compares left and right child heights to set
-         * parent height subtractively, once to ensure order 1 operation
+         * Root of the nodes less than the element
          */
-        if (n.left != null && n.right != null) {
-            if (n.height - 2 >= n.left.height && n.height - 2 >= n.right.height) {
-                n.height--;
+        Node left;
+        /**
+         * Detached node equal to the element, or null
+         */
+        Node match;
+        /**
+         * Root of the nodes greater than the element
+         */
+        Node right;
+    }
+
+    /**
+     * Splits a subtree into the nodes less than, equal to and greater than an
+     * element. The path from t to the element is taken apart, and the pieces
+     * hanging off it are joined back together bottom-up, which costs O(H) in
+     * total for a balanced subtree.
+     * 
+     * @param t - root of the subtree, which is consumed
+     * @param e - the value to split at
+     * @return the parts of the subtree
+     */
+    private Split split(Node t, E e) {
+
+        ArrayList<Node> lower = new ArrayList<Node>();
+        ArrayList<Node> upper = new ArrayList<Node>();
+        Split parts = new Split();
+        Node n = t;
+        while (n != null) {
+            int cmp = n.compareTo(e);
+            if (cmp < 0) {
+                lower.add(n);
+                n = n.right;
+            } else if (cmp > 0) {
+                upper.add(n);
+                n = n.left;
+            } else {
+                parts.match = n;
+                break;
             }
-        } else if (n.left != null && n.right == null) {
-            if (n.height - 2 == n.left.height) {
-                n.height--;
+        }
+        if (parts.match != null) {
+            parts.left = parts.match.left;
+            parts.right = parts.match.right;
+            parts.match.left = null;
+            parts.match.right = null;
+            parts.match.parent = null;
+            update(parts.match);
+        }
+        /**
+         * Every node passed on the way down brings its subtree on the far side of the
+         * path along with it
+         */
+        for (int i = lower.size() - 1; i >= 0; i--) {
+            Node k = lower.get(i);
+            parts.left = join(k.left, k, parts.left);
+        }
+        for (int i = upper.size() - 1; i >= 0; i--) {
+            Node k = upper.get(i);
+            parts.right = join(parts.right, k, k.right);
+        }
+        if (parts.left != null)
+            parts.left.parent = null;
+        if (parts.right != null)
+            parts.right.parent = null;
+        return parts;
+    }
+
+    /**
+     * Joins two subtrees with a node between them, where every element of l is
+     * less than k and every element of r is greater than k. The node is hung on
+     * the spine of the taller subtree at the height of the shorter one and the
+     * nodes above it are rebalanced, which costs O(|H(l) - H(r)| + 1).
+     * 
+     * @param l - root of the lower subtree, or null
+     * @param k - node to be placed between the subtrees
+     * @param r - root of the upper subtree, or null
+     * @return root of the joined subtree
+     */
+    private Node join(Node l, Node k, Node r) {
+
+        if (l != null)
+            l.parent = null;
+        if (r != null)
+            r.parent = null;
+        k.parent = null;
+
+        if (height(l) > height(r) + 1) {
+            Node c = l;
+            Node p = null;
+            while (height(c) > height(r) + 1) {
+                p = c;
+                c = c.right;
             }
-        } else if (n.left == null && n.right != null) {
-            if (n.height - 2 == n.right.height) {
-                n.height--;
+            link(k, c, r);
+            p.right = k;
+            k.parent = p;
+            return fixUp(p);
+        } else if (height(r) > height(l) + 1) {
+            Node c = r;
+            Node p = null;
+            while (height(c) > height(l) + 1) {
+                p = c;
+                c = c.left;
             }
-        } else if (n.left == null && n.right == null) {
-            n.height--;
+            link(k, l, c);
+            p.left = k;
+            k.parent = p;
+            return fixUp(p);
+        }
+        link(k, l, r);
+        return k;
+    }
+
+    /**
+     * Joins two subtrees where every element of l is less than every element of
+     * r, using the largest node of l as the node between them
+     * 
+     * @param l - root of the lower subtree, or null
+     * @param r - root of the upper subtree, or null
+     * @return root of the joined subtree
+     */
+    private Node join(Node l, Node r) {
+
+        if (l == null)
+            return r;
+        if (r == null)
+            return l;
+
+        l.parent = null;
+        Node k = l;
+        while (k.right != null) {
+            k = k.right;
+        }
+        Node p = k.parent;
+        if (p == null) {
+            l = k.left;
+        } else {
+            p.right = k.left;
+            if (k.left != null)
+                k.left.parent = p;
+            l = fixUp(p);
+        }
+        return join(l, k, r);
+    }
+
+    /**
+     * Makes l and r the children of k and recomputes k
+     * 
+     * @param k - parent node
+     * @param l - new left child, or null
+     * @param r - new right child, or null
+     */
+    private void link(Node k, Node l, Node r) {
+        k.left = l;
+        k.right = r;
+        if (l != null)
+            l.parent = k;
+        if (r != null)
+            r.parent = k;
+        update(k);
+    }
+
+    /**
+     * Restores heights and subtree sizes (and balance, in balanced mode) from n up
+     * to the top of the subtree it belongs to
+     * 
+     * @param n - lowest node whose children changed
+     * @return root of the subtree
+     */
+    private Node fixUp(Node n) {
+        while (true) {
+            update(n);
+            if (balanced)
+                n = rebalance(n);
+            if (n.parent == null)
+                return n;
+            n = n.parent;
         }
     }
 
+    /**
+     * Recursive helper method for union method. The nodes of a are reused; nodes
+     * are only created for elements of b that are missing from a.
+     * 
+     * @param a - root of a subtree of this tree, which is consumed
+     * @param b - root of a subtree of the other tree, which is only read
+     * @return root of the union of the subtrees
+     */
+    private Node union(Node a, Node b) {
+
+        if (b == null)
+            return a;
+
+        Split parts = split(a, b.data);
+        Node left = union(parts.left, b.left);
+        Node right = union(parts.right, b.right);
+        Node k = parts.match;
+        if (k == null)
+            k = new Node(b.data, 1);
+        else
+            k.data = b.data;
+        return join(left, k, right);
+    }
+
+    /**
+     * Recursive helper method for intersect method
+     * 
+     * @param a - root of a subtree of this tree, which is consumed
+     * @param b - root of a subtree of the other tree, which is only read
+     * @return root of the intersection of the subtrees
+     */
+    private Node intersect(Node a, Node b) {
+
+        if (a == null || b == null)
+            return null;
+
+        Split parts = split(a, b.data);
+        Node left = intersect(parts.left, b.left);
+        Node right = intersect(parts.right, b.right);
+        if (parts.match == null)
+            return join(left, right);
+        return join(left, parts.match, right);
+    }
+
+    /**
+     * Recursive helper method for difference method
+     * 
+     * @param a - root of a subtree of this tree, which is consumed
+     * @param b - root of a subtree of the other tree, which is only read
+     * @return root of the difference of the subtrees
+     */
+    private Node difference(Node a, Node b) {
+
+        if (a == null || b == null)
+            return a;
+
+        Split parts = split(a, b.data);
+        Node left = difference(parts.left, b.left);
+        Node right = difference(parts.right, b.right);
+        return join(left, right);
+    }
+
     /**
      * Removes all of the elements from this set and sets the size of the BST equal
      * to zero
@@ -391,6 +1266,7 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
 
         size = 0;
         root = null;
+        modCount++;
 
     }
 
@@ -530,6 +1406,141 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
 
     }
 
+    /**
+     * Returns an iterator over the elements in this tree in descending order.
+     * 
+     * @return an iterator over the elements in this set in descending order
+     */
+    public Iterator descendingIterator() {
+        return new Iterator("descending");
+    }
+
+    /**
+     * Returns a view of the portion of this tree whose elements range from
+     * fromElement to toElement. The view is backed by this tree, so changes to
+     * the tree are reflected in the view and vice-versa.
+     * 
+     * @param fromElement   - low endpoint of the view
+     * @param fromInclusive - true if the low endpoint is to be included
+     * @param toElement     - high endpoint of the view
+     * @param toInclusive   - true if the high endpoint is to be included
+     * @return a view of the portion of this tree within the range
+     * @throws NullPointerException     - if fromElement or toElement is null
+     * @throws IllegalArgumentException - if fromElement is greater than toElement
+     */
+    public SubSet subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive)
+            throws NullPointerException, IllegalArgumentException {
+        if (fromElement == null || toElement == null)
+            throw new NullPointerException("endpoint cannot be null");
+        if (fromElement.compareTo(toElement) > 0)
+            throw new IllegalArgumentException("fromElement greater than toElement");
+
+        return new SubSet(fromElement, fromInclusive, toElement, toInclusive);
+    }
+
+    /**
+     * Returns a view of the portion of this tree whose elements range from
+     * fromElement, inclusive, to toElement, exclusive.
+     * 
+     * @param fromElement - low endpoint (inclusive) of the view
+     * @param toElement   - high endpoint (exclusive) of the view
+     * @return a view of the portion of this tree within the range
+     * @throws NullPointerException     - if fromElement or toElement is null
+     * @throws IllegalArgumentException - if fromElement is greater than toElement
+     */
+    public SubSet subSet(E fromElement, E toElement) throws NullPointerException, IllegalArgumentException {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    /**
+     * Returns a view of the portion of this tree whose elements are less than (or
+     * equal to, if inclusive is true) toElement.
+     * 
+     * @param toElement - high endpoint of the view
+     * @param inclusive - true if the high endpoint is to be included
+     * @return a view of the portion of this tree below the endpoint
+     * @throws NullPointerException - if toElement is null
+     */
+    public SubSet headSet(E toElement, boolean inclusive) throws NullPointerException {
+        if (toElement == null)
+            throw new NullPointerException("endpoint cannot be null");
+
+        return new SubSet(null, false, toElement, inclusive);
+    }
+
+    /**
+     * Returns a view of the portion of this tree whose elements are strictly less
+     * than toElement.
+     * 
+     * @param toElement - high endpoint (exclusive) of the view
+     * @return a view of the portion of this tree below the endpoint
+     * @throws NullPointerException - if toElement is null
+     */
+    public SubSet headSet(E toElement) throws NullPointerException {
+        return headSet(toElement, false);
+    }
+
+    /**
+     * Returns a view of the portion of this tree whose elements are greater than
+     * (or equal to, if inclusive is true) fromElement.
+     * 
+     * @param fromElement - low endpoint of the view
+     * @param inclusive   - true if the low endpoint is to be included
+     * @return a view of the portion of this tree above the endpoint
+     * @throws NullPointerException - if fromElement is null
+     */
+    public SubSet tailSet(E fromElement, boolean inclusive) throws NullPointerException {
+        if (fromElement == null)
+            throw new NullPointerException("endpoint cannot be null");
+
+        return new SubSet(fromElement, inclusive, null, false);
+    }
+
+    /**
+     * Returns a view of the portion of this tree whose elements are greater than
+     * or equal to fromElement.
+     * 
+     * @param fromElement - low endpoint (inclusive) of the view
+     * @return a view of the portion of this tree above the endpoint
+     * @throws NullPointerException - if fromElement is null
+     */
+    public SubSet tailSet(E fromElement) throws NullPointerException {
+        return tailSet(fromElement, true);
+    }
+
+    /**
+     * Returns a spliterator over the elements in this tree in ascending order. The
+     * spliterator splits at subtree boundaries, so each half is handed an exact
+     * size and no elements are copied.
+     * Overrides spliterator in interface Iterable<E>
+     * 
+     * @return a spliterator over the elements in this tree
+     */
+    @Override
+    public Spliterator spliterator() {
+        return new Spliterator(root, true, true);
+    }
+
+    /**
+     * Returns a sequential Stream with this tree as its source.
+     * 
+     * @return a sequential Stream over the elements in this tree in ascending
+     *         order
+     */
+    public Stream<E> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a possibly parallel Stream with this tree as its source. The tree
+     * must not be modified while the stream is being processed.
+     * 
+     * @return a possibly parallel Stream over the elements in this tree
+     */
+    public Stream<E> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
     /**
      * Returns the element at the specified position in this tree.
      * 
@@ -547,7 +1558,8 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
     }
 
     /**
-     * Recursive helper method for get method
+     * Helper method for get method that descends from n using the subtree sizes,
+     * so no traversal of the preceding elements is needed
      * 
      * @param n     - root node reference
      * @param index - index of the element to return
@@ -555,33 +1567,117 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
      */
     private E get(Node n, int index) {
 
-        ArrayList<BST<E>.Node> stack = new ArrayList<BST<E>.Node>();
-        Node current = root;
-        int count = 0;
-        ArrayList<E> list = new ArrayList<E>();
+        while (n != null) {
+            int leftSize = size(n.left);
+            if (index < leftSize) {
+                n = n.left;
+            } else if (index > leftSize) {
+                /**
+                 * Skips the left subtree and this node
+                 */
+                index -= leftSize + 1;
+                n = n.right;
+            } else {
+                return n.data;
+            }
+        }
+        /**
+         * We should never get to this line
+         */
+        return null;
+    }
 
-        if (root != null) {
-            /**
-             * Traverses the tree in an inorder traversal to get values from smallest to
-             * highest until specified index is reached
-             */
-            boolean done = false;
-            while (done == false) {
-                if (current != null) {
-                    stack.add(current);
-                    current = current.left;
-                } else if (stack.size() > 0) {
-                    current = stack.remove(stack.size() - 1);
-                    list.add(current.data);
-                    if (count == index)
-                        done = true;
+    /**
+     * Returns the element at the specified position in this tree. Equivalent to
+     * get(index).
+     * 
+     * @param index - index of the element to return
+     * @return the element at the specified position in this tree
+     * @throws IndexOutOfBoundsException - if the index is out of range (index < 0
+     *                                   || index >= size)
+     */
+    public E select(int index) throws IndexOutOfBoundsException {
+        return get(index);
+    }
+
+    /**
+     * Returns the number of elements in this tree strictly less than the given
+     * element. This is the index the element has, or would have if it were added,
+     * in the ascending order of this tree.
+     * 
+     * @param e - the value to match
+     * @return the number of elements less than e
+     * @throws ClassCastException   - if the specified element cannot be compared
+     *                              with the elements currently in the set
+     * @throws NullPointerException - if the specified element is null
+     */
+    public int rank(E e) throws ClassCastException, NullPointerException {
+
+        if (e == null)
+            throw new NullPointerException("element cannot be null");
+        try {
+            return rank(root, e, false);
+        } catch (ClassCastException ex) {
+            throw new ClassCastException("types not the same");
+        }
+
+    }
+
+    /**
+     * Helper method for rank that counts the elements less than (or, if inclusive
+     * is true, less than or equal to) the given element
+     * 
+     * @param n         - root node reference
+     * @param e         - the value to match
+     * @param inclusive - true if an element equal to e should be counted
+     * @return the number of matching elements in the subtree rooted at n
+     */
+    private int rank(Node n, E e, boolean inclusive) {
+
+        int count = 0;
+        while (n != null) {
+            int cmp = n.compareTo(e);
+            if (cmp < 0) {
+                /**
+                 * This node and its whole left subtree precede e
+                 */
+                count += size(n.left) + 1;
+                n = n.right;
+            } else if (cmp > 0) {
+                n = n.left;
+            } else {
+                count += size(n.left);
+                if (inclusive)
                     count++;
-                    current = current.right;
-                } else
-                    done = true;
+                return count;
             }
         }
-        return list.get(count - 1);
+        return count;
+    }
+
+    /**
+     * Returns the index of the specified element in the ascending order of this
+     * tree, or -1 if this tree does not contain the element.
+     * 
+     * @param o - element to search for
+     * @return the index of o in this tree, or -1 if it is not present
+     * @throws ClassCastException   - if the specified object cannot be compared
+     *                              with the elements currently in the set
+     * @throws NullPointerException - if the specified element is null
+     */
+    @SuppressWarnings("unchecked")
+    public int indexOf(Object o) throws ClassCastException, NullPointerException {
+
+        if (o == null)
+            throw new NullPointerException("object cannot be null");
+        try {
+            if (contains(root, o) == null)
+                return -1;
+            return rank(root, (E) o, false);
+        } catch (ClassCastException ex) {
+            throw new ClassCastException("types not the same");
+        }
+
     }
 
     /**
@@ -833,38 +1929,54 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
 
     /**
      * Compares the specified object with this tree for equality. Returns true if
-     * the given object is also a tree, the two trees have the same size, and every
-     * member of the given tree is contained in this tree.
+     * the given object is also a tree, the two trees have the same size, and the
+     * elements of the two trees are pairwise equal in ascending order. Trees of
+     * different sizes or hash codes are rejected in O(1); otherwise both trees are
+     * walked together and the walk stops at the first mismatch.
      * Overrides equals in class Object
-     * Suppresses any unchecked cast warnings
      * 
      * @param obj - object to be compared for equality with this tree
      * @return true if the specified object is equal to this tree
      * 
      */
     @Override
-    @SuppressWarnings("unchecked")
     public boolean equals(Object obj) {
-        boolean isTrue = true;
+        if (obj == this)
+            return true;
         if (!(obj instanceof BST)) {
             return false;
         }
+        BST<?> comp = (BST<?>) obj;
+        if (this.size() != comp.size() || this.hashCode() != comp.hashCode())
+            return false;
+
         /**
-         * Uses contains method to check if each element in the object is contained in
-         * this BST
+         * Both trees hold their elements in ascending order, so equal trees produce
+         * equal elements at every step of an inorder walk
          */
-        BST<E> comp = (BST<E>) obj;
-        Iterator it = comp.preorderIterator();
-        while (it.hasNext()) {
-            if (!(this.contains(it.next()))) {
-                isTrue = false;
-            }
+        java.util.Iterator<E> it = this.iterator();
+        java.util.Iterator<?> other = comp.iterator();
+        while (it.hasNext() && other.hasNext()) {
+            if (!Objects.equals(it.next(), other.next()))
+                return false;
         }
-        if (isTrue && this.size() == comp.size())
-            return true;
+        return !it.hasNext() && !other.hasNext();
 
-        return false;
+    }
 
+    /**
+     * Returns the hash code of this tree, defined as the sum of the hash codes of
+     * its elements (as for java.util.Set). The sum is cached in the nodes and kept
+     * up to date by every change to the tree, so this runs in O(1).
+     * Overrides hashCode in class Object
+     * 
+     * @return the hash code of this tree
+     */
+    @Override
+    public int hashCode() {
+        if (root == null)
+            return 0;
+        return root.hash;
     }
 
     /**
@@ -872,247 +1984,650 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>
      * iterator() method returns an instance of a class that implements the
      * Iterator<E> interface. The iterator() method in the BST<E> class returns an
      * iterator instance that accesses the values in the tree according to the
-     * inorder traversal of the binary search tree. The two additional methods
-     * preorderIterator() and postOrederIterator() wtihin the BST<E> class return
-     * iterators that access the values in the tree according to the preorder
-     * and postorder traversals, respectively.
+     * inorder traversal of the binary search tree. The additional methods
+     * preorderIterator(), postorderIterator() and descendingIterator() within the
+     * BST<E> class return iterators that access the values in the tree according
+     * to the preorder, postorder and reverse inorder traversals, respectively.
+     * 
+     * The traversal is performed lazily: the iterator only keeps a stack of the
+     * nodes between the root and the next node to be returned, so creating one
+     * costs O(H) and each call to next() costs O(1) amortized. The iterator is
+     * fail-fast: if this tree is structurally modified after the iterator is
+     * created, next() throws a ConcurrentModificationException.
      * 
      */
-    public class Iterator extends BST<E> implements java.util.Iterator<E> {
+    public class Iterator implements java.util.Iterator<E> {
 
         /**
-         * Represents the current node in the iterator, and is the root node reference
+         * String value of the parameter in the constructor, to determine the order
+         * in which the tree is traversed
          */
-        private Node current;
+        private final String order;
 
         /**
-         * String value of the parameter in the constructor, to determine if the list is
-         * to be traversed in reverse or sequential order
+         * Nodes on the path to the next node to be returned; the top of the stack is
+         * the next node
          */
-        private String order;
+        private final ArrayList<Node> stack = new ArrayList<Node>();
 
         /**
-         * Integer value of the index in the next() method of this Iterator object
+         * Value of modCount when this Iterator object was created
+         */
+        private final int expectedModCount;
+
+        /**
+         * Constructor pushes the path from the root node to the first node of the
+         * traversal and sets the order String reference to the parameter value
+         * 
+         * @param current String representation of the order of this Iteraror object, as
+         *                an inorder, preorder, postorder or descending Iterator
          */
-        private int index = 0;
+        Iterator(String current) {
+            this.order = current;
+            this.expectedModCount = modCount;
+
+            if (order.equals("inOrder"))
+                pushLeft(root);
+            else if (order.equals("descending"))
+                pushRight(root);
+            else if (order.equals("preOrder")) {
+                if (root != null)
+                    stack.add(root);
+            } else if (order.equals("postOrder"))
+                pushFirstLeaf(root);
+
+        }
 
         /**
-         * ArrayList<BST<E>.Node> object representing a inorder traversal of the BST if
-         * the constructor is called with "inOrder" as its parameter value
+         * Pushes n and all of its left descendants, so the smallest node of the
+         * subtree ends up on top of the stack
+         * 
+         * @param n - root of the subtree
          */
-        private ArrayList<BST<E>.Node> inList = new ArrayList<BST<E>.Node>();
+        private void pushLeft(Node n) {
+            while (n != null) {
+                stack.add(n);
+                n = n.left;
+            }
+        }
 
         /**
-         * ArrayList<BST<E>.Node> object representing a preorder traversal of the BST if
-         * the constructor is called with "preOrder" as its parameter value
+         * Pushes n and all of its right descendants, so the largest node of the
+         * subtree ends up on top of the stack
+         * 
+         * @param n - root of the subtree
          */
-        private ArrayList<BST<E>.Node> preList = new ArrayList<BST<E>.Node>();
+        private void pushRight(Node n) {
+            while (n != null) {
+                stack.add(n);
+                n = n.right;
+            }
+        }
 
         /**
-         * ArrayList<BST<E>.Node> object representing a postorder traversal of the BST
-         * if the constructor is called with "postOrder" as its parameter value
+         * Pushes the path from n down to the first node of its postorder traversal,
+         * preferring left children over right children
+         * 
+         * @param n - root of the subtree
          */
-        private ArrayList<BST<E>.Node> postList = new ArrayList<BST<E>.Node>();
+        private void pushFirstLeaf(Node n) {
+            while (n != null) {
+                stack.add(n);
+                if (n.left != null)
+                    n = n.left;
+                else
+                    n = n.right;
+            }
+        }
 
         /**
-         * Constructor sets the current Node reference to the root node of the BST
-         * and sets the order String reference to the parameter value
+         * Returns true if the iteration has more elements. (In other words, returns
+         * true if next() would return an element rather than throwing an exception.)
          * 
-         * @param current String representation of the order of this Iteraror object, as
-         *                an inorder, preorder, or postorder Iterator
+         * @return boolean value for if there is a next node
          */
-        Iterator(String current) {
-            this.current = root;
-            this.order = current;
+        @Override
+        public boolean hasNext() {
 
-            if (order.equals("inOrder"))
-                inOrder(root);
-            else if (order.equals("preOrder"))
-                preOrder(root);
-            else if (order.equals("postOrder"))
-                postOrder(root);
+            return !stack.isEmpty();
 
         }
 
         /**
-         * Fills preList ArrayList<BST<E>.Node> with node values representing a preOrder
-         * traversal of the BST
+         * Returns the next element in the iteration.
          * 
-         * @param n - root node reference
+         * @return E data value of the next node, or null if there are no more
+         *         elements
+         * @throws ConcurrentModificationException - if the tree was modified after
+         *                                         this iterator was created
          */
-        private void preOrder(Node n) {
-            ArrayList<BST<E>.Node> stack = new ArrayList<BST<E>.Node>();
-            Node current = n;
+        @Override
+        public E next() throws ConcurrentModificationException {
 
-            if (root != null) {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException("tree modified during iteration");
+            if (!hasNext())
+                return null;
+
+            Node c = stack.remove(stack.size() - 1);
+            /**
+             * Prepares the stack for the following call depending on the order value of
+             * this iterator class
+             */
+            if (order.equals("inOrder")) {
+                pushLeft(c.right);
+            } else if (order.equals("descending")) {
+                pushRight(c.left);
+            } else if (order.equals("preOrder")) {
+                if (c.right != null)
+                    stack.add(c.right);
+                if (c.left != null)
+                    stack.add(c.left);
+            } else if (order.equals("postOrder")) {
                 /**
-                 * Fills the ArrayList<BST<E>.Node> preList with values in a preorder traversal
-                 * of this tree
+                 * When coming up from a left child the parent's right subtree is visited
+                 * before the parent itself
                  */
-                boolean done = false;
-                while (done == false) {
-                    if (current != null) {
-                        stack.add(current);
-                        preList.add(current);
-                        current = current.left;
-                    } else if (stack.size() > 0) {
-                        current = stack.remove(stack.size() - 1);
-                        current = current.right;
-                    } else
-                        done = true;
+                if (!stack.isEmpty()) {
+                    Node top = stack.get(stack.size() - 1);
+                    if (top.left == c)
+                        pushFirstLeaf(top.right);
                 }
             }
+            return c.data;
+        }
+
+        /**
+         * Removes from the underlying collection the last element returned by this
+         * iterator (optional operation). This method can be called only once per call
+         * to next(). This operation is unsupported by this program.
+         * 
+         * @throws UnsupportedOperationException - this operation is unsupported
+         */
+        @Override
+        public void remove() throws UnsupportedOperationException {
+
+            throw new UnsupportedOperationException("remove from iterator not supported");
 
         }
 
+    }
+
+    /**
+     * A live view of the elements of the tree that lie between two endpoints. A
+     * missing endpoint leaves that side of the range unbounded. Iteration starts
+     * by descending once to the first element in range and stops at the first
+     * element past the high endpoint, so visiting k elements costs O(H + k).
+     * Because the nodes know the sizes of their subtrees, size() counts the
+     * elements in range in O(H) without visiting them.
+     * 
+     */
+    public class SubSet implements Iterable<E> {
+
         /**
-         * Fills inList ArrayList<BST<E>.Node> with node values representing an inOrder
-         * traversal of the BST
+         * Low endpoint of the range, or null if the range has no low endpoint
+         */
+        private final E lo;
+        /**
+         * True if the low endpoint is part of the range
+         */
+        private final boolean loInclusive;
+        /**
+         * High endpoint of the range, or null if the range has no high endpoint
+         */
+        private final E hi;
+        /**
+         * True if the high endpoint is part of the range
+         */
+        private final boolean hiInclusive;
+
+        /**
+         * Constructs a SubSet object over the given range
          * 
-         * @param n - root node reference
+         * @param lo          - low endpoint, or null for no low endpoint
+         * @param loInclusive - true if the low endpoint is part of the range
+         * @param hi          - high endpoint, or null for no high endpoint
+         * @param hiInclusive - true if the high endpoint is part of the range
          */
-        private void inOrder(Node n) {
-            ArrayList<BST<E>.Node> stack = new ArrayList<BST<E>.Node>();
-            Node current = n;
+        SubSet(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
 
-            if (root != null) {
-                /**
-                 * Fills the ArrayList<BST<E>.Node> inList with values in an inorder traversal
-                 * of this tree
-                 */
-                boolean done = false;
-                while (done == false) {
-                    if (current != null) {
-                        stack.add(current);
-                        current = current.left;
-                    } else if (stack.size() > 0) {
-                        current = stack.remove(stack.size() - 1);
-                        inList.add(current);
-                        current = current.right;
-                    } else
-                        done = true;
+        /**
+         * Returns true if an element lies below the low endpoint
+         * 
+         * @param e - element to be checked
+         * @return true if e is below the range
+         */
+        private boolean tooLow(E e) {
+            if (lo == null)
+                return false;
+            int cmp = e.compareTo(lo);
+            return cmp < 0 || cmp == 0 && !loInclusive;
+        }
+
+        /**
+         * Returns true if an element lies above the high endpoint
+         * 
+         * @param e - element to be checked
+         * @return true if e is above the range
+         */
+        private boolean tooHigh(E e) {
+            if (hi == null)
+                return false;
+            int cmp = e.compareTo(hi);
+            return cmp > 0 || cmp == 0 && !hiInclusive;
+        }
+
+        /**
+         * Returns true if an element lies within the range of this view
+         * 
+         * @param e - element to be checked
+         * @return true if e is in range
+         */
+        private boolean inRange(E e) {
+            return !tooLow(e) && !tooHigh(e);
+        }
+
+        /**
+         * Returns the number of elements of the tree within the range.
+         * 
+         * @return the number of elements in this view
+         */
+        public int size() {
+            int below = 0;
+            if (lo != null)
+                below = rank(root, lo, !loInclusive);
+            int upTo = size;
+            if (hi != null)
+                upTo = rank(root, hi, hiInclusive);
+            return Math.max(0, upTo - below);
+        }
+
+        /**
+         * Returns true if no element of the tree lies within the range.
+         * 
+         * @return true if this view contains no elements
+         */
+        public boolean isEmpty() {
+            return firstNode() == null;
+        }
+
+        /**
+         * Returns true if the element is within the range and contained in the tree.
+         * 
+         * @param o - object to be checked for containment in this view
+         * @return true if this view contains the specified element
+         * @throws ClassCastException   - if the specified object cannot be compared
+         *                              with the elements currently in the set
+         * @throws NullPointerException - if the specified element is null
+         */
+        @SuppressWarnings("unchecked")
+        public boolean contains(Object o) throws ClassCastException, NullPointerException {
+            if (o == null)
+                throw new NullPointerException("object cannot be null");
+            try {
+                return inRange((E) o) && BST.this.contains(o);
+            } catch (ClassCastException ex) {
+                throw new ClassCastException("types not the same");
+            }
+        }
+
+        /**
+         * Adds the specified element to the tree if it is not already present.
+         * 
+         * @param e - element to be added
+         * @return true if the tree did not already contain the specified element
+         * @throws NullPointerException     - if the specified element is null
+         * @throws IllegalArgumentException - if the element is outside the range
+         */
+        public boolean add(E e) throws NullPointerException, IllegalArgumentException {
+            if (e == null)
+                throw new NullPointerException("added value cannot be null");
+            if (!inRange(e))
+                throw new IllegalArgumentException("value out of range");
+
+            return BST.this.add(e);
+        }
+
+        /**
+         * Removes the specified element from the tree if it is within the range and
+         * present.
+         * 
+         * @param o - object to be removed, if present
+         * @return true if this view contained the specified element
+         * @throws ClassCastException   - if the specified object cannot be compared
+         *                              with the elements currently in the set
+         * @throws NullPointerException - if the specified element is null
+         */
+        @SuppressWarnings("unchecked")
+        public boolean remove(Object o) throws ClassCastException, NullPointerException {
+            if (o == null)
+                throw new NullPointerException("object cannot be null");
+            try {
+                return inRange((E) o) && BST.this.remove(o);
+            } catch (ClassCastException ex) {
+                throw new ClassCastException("types not the same");
+            }
+        }
+
+        /**
+         * Returns the first (lowest) element within the range.
+         * 
+         * @return the first (lowest) element in this view
+         * @throws NoSuchElementException - if this view is empty
+         */
+        public E first() throws NoSuchElementException {
+            Node n = firstNode();
+            if (n == null)
+                throw new NoSuchElementException("set is empty");
+            return n.data;
+        }
+
+        /**
+         * Returns the last (highest) element within the range.
+         * 
+         * @return the last (highest) element in this view
+         * @throws NoSuchElementException - if this view is empty
+         */
+        public E last() throws NoSuchElementException {
+            Node n = root;
+            Node match = null;
+            /**
+             * Descends towards the highest element that is not above the range
+             */
+            while (n != null) {
+                if (tooHigh(n.data)) {
+                    n = n.left;
+                } else {
+                    match = n;
+                    n = n.right;
                 }
             }
+            if (match == null || tooLow(match.data))
+                throw new NoSuchElementException("set is empty");
+            return match.data;
         }
 
         /**
-         * Fills postList ArrayList<BST<E>.Node> with node values representing a
-         * postOrder traversal of the BST
+         * Returns the node holding the lowest element within the range
          * 
-         * @param n - root node reference
+         * @return the first node in range, or null if there is none
          */
-        private void postOrder(Node n) {
-            ArrayList<BST<E>.Node> stack = new ArrayList<BST<E>.Node>();
-            Node current = n;
+        private Node firstNode() {
+            Node n = root;
+            Node match = null;
+            /**
+             * Descends towards the lowest element that is not below the range
+             */
+            while (n != null) {
+                if (tooLow(n.data)) {
+                    n = n.right;
+                } else {
+                    match = n;
+                    n = n.left;
+                }
+            }
+            if (match == null || tooHigh(match.data))
+                return null;
+            return match;
+        }
 
-            if (current != null) {
-                Node p = null;
-                /**
-                 * Fills the ArrayList<BST<E>.Node> postList with values in a postorder
-                 * traversal of this tree
-                 */
-                while (current != null || stack.size() > 0) {
-                    if (current != null) {
-                        stack.add(current);
-                        current = current.left;
+        /**
+         * Returns an iterator over the elements within the range in ascending order.
+         * The iterator is fail-fast like the iterators of the tree.
+         * 
+         * @return an iterator over the elements in this view
+         */
+        @Override
+        public java.util.Iterator<E> iterator() {
+            return new RangeIterator();
+        }
+
+        /**
+         * Inorder iterator that starts at the first element in range and stops
+         * before the first element above the range
+         */
+        private class RangeIterator implements java.util.Iterator<E> {
+
+            /**
+             * Nodes on the path to the next node to be returned; the top of the stack
+             * is the next node
+             */
+            private final ArrayList<Node> stack = new ArrayList<Node>();
+
+            /**
+             * Value of modCount when this RangeIterator object was created
+             */
+            private final int expectedModCount = modCount;
+
+            /**
+             * Constructor pushes the nodes between the root and the first node in range
+             * whose left subtrees may still hold elements in range
+             */
+            RangeIterator() {
+                Node n = root;
+                while (n != null) {
+                    if (tooLow(n.data)) {
+                        n = n.right;
                     } else {
-                        current = stack.get(stack.size() - 1);
-                        if (current.right == null || current.right == p) {
-                            postList.add(current);
-                            stack.remove(stack.size() - 1);
-                            p = current;
-                            current = null;
-
-                        } else
-                            current = current.right;
+                        stack.add(n);
+                        n = n.left;
                     }
                 }
+            }
 
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty() && !tooHigh(stack.get(stack.size() - 1).data);
             }
 
+            @Override
+            public E next() throws ConcurrentModificationException {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException("tree modified during iteration");
+                if (!hasNext())
+                    return null;
+
+                Node c = stack.remove(stack.size() - 1);
+                Node n = c.right;
+                while (n != null) {
+                    stack.add(n);
+                    n = n.left;
+                }
+                return c.data;
+            }
         }
 
         /**
-         * Returns true if the iteration has more elements. (In other words, returns
-         * true if next() would return an element rather than throwing an exception.)
-         * 
-         * @return boolean value for if the current node is valid
+         * Returns a string representation of this view, listing the elements in
+         * ascending order.
+         * Overrides toString in class Object
          */
         @Override
-        public boolean hasNext() {
-
-            if (current != null) {
-                return true;
+        public String toString() {
+            StringBuffer sb = new StringBuffer();
+            for (E e : this) {
+                sb.append(e + " ");
             }
-            return false;
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Spliterator over the inorder traversal of a part of the tree. The part is a
+     * single node together with, optionally, all of its left subtree and all of its
+     * right subtree. Splitting hands off the left subtree (or, once that is gone,
+     * the node itself) as the prefix, so both halves know their exact sizes from
+     * the subtree sizes stored in the nodes.
+     * 
+     */
+    public class Spliterator implements java.util.Spliterator<E> {
+
+        /**
+         * Node whose part of the tree this Spliterator object covers
+         */
+        private Node node;
+
+        /**
+         * True if the left subtree of node has not been split off
+         */
+        private boolean includeLeft;
+
+        /**
+         * True if the right subtree of node is covered by this Spliterator object
+         */
+        private boolean includeRight;
+
+        /**
+         * Number of elements not yet consumed
+         */
+        private long remaining;
+
+        /**
+         * Traversal stack, created on the first call to tryAdvance; splitting is no
+         * longer possible once it exists
+         */
+        private ArrayList<Node> stack;
+
+        /**
+         * Value of modCount when this Spliterator object was created
+         */
+        private final int expectedModCount;
 
+        /**
+         * Constructs a Spliterator object over node and, optionally, its subtrees
+         * 
+         * @param node         - node to be covered, or null for an empty tree
+         * @param includeLeft  - true if the left subtree of node is covered
+         * @param includeRight - true if the right subtree of node is covered
+         */
+        Spliterator(Node node, boolean includeLeft, boolean includeRight) {
+            this.node = node;
+            this.includeLeft = includeLeft;
+            this.includeRight = includeRight;
+            this.expectedModCount = modCount;
+            if (node != null) {
+                remaining = 1;
+                if (includeLeft)
+                    remaining += size(node.left);
+                if (includeRight)
+                    remaining += size(node.right);
+            }
         }
 
         /**
-         * Returns the next element in the iteration.
+         * Splits off the elements before the ones this Spliterator object keeps
          * 
-         * @return E data value of the current node
+         * @return a Spliterator object covering a prefix of the elements, or null if
+         *         this Spliterator object cannot be split
          */
         @Override
-        public E next() {
-            Node c;
+        public Spliterator trySplit() {
 
-            if (hasNext()) {
+            if (stack != null || node == null)
+                return null;
+
+            Spliterator prefix;
+            if (includeLeft && node.left != null) {
                 /**
-                 * Uses a unique list to traverse depending on the order value of this iterator
-                 * class
+                 * Hands off the whole left subtree
                  */
-                if (order.equals("preOrder") && index == 0) {
-                    c = preList.get(index);
-                    index++;
-                }
-                if (order.equals("postOrder") && index == 0) {
-                    c = postList.get(index);
-                    index++;
-                } else if (order == "inOrder" && index == 0) {
-                    c = inList.get(index);
-                    index++;
-                } else
-                    c = current;
-
-                if (order.equals("preOrder")) {
-                    if (index > preList.size() - 1)
-                        current = null;
-                    else
-                        current = preList.get(index);
-                }
-                if (order.equals("inOrder")) {
-                    if (index > inList.size() - 1)
-                        current = null;
-                    else
-                        current = inList.get(index);
+                prefix = new Spliterator(node.left, true, true);
+                includeLeft = false;
+            } else if (includeRight && node.right != null) {
+                /**
+                 * Hands off the node itself and keeps the whole right subtree
+                 */
+                prefix = new Spliterator(node, false, false);
+                node = node.right;
+                includeLeft = true;
+            } else {
+                return null;
+            }
+            remaining -= prefix.remaining;
+            return prefix;
+        }
 
-                }
-                if (order.equals("postOrder")) {
-                    if (index > postList.size() - 1)
-                        current = null;
+        /**
+         * Performs the given action on the next element, if there is one
+         * 
+         * @param action - the action to be performed
+         * @return false if no elements remained
+         * @throws ConcurrentModificationException - if the tree was modified after
+         *                                         this spliterator was created
+         */
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) throws ConcurrentModificationException {
+
+            if (action == null)
+                throw new NullPointerException("action is null");
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException("tree modified during traversal");
+
+            if (stack == null) {
+                stack = new ArrayList<Node>();
+                if (node != null) {
+                    if (includeLeft)
+                        pushLeft(node);
                     else
-                        current = postList.get(index);
+                        stack.add(node);
                 }
+            }
+            if (stack.isEmpty())
+                return false;
 
-                index++;
-                return c.data;
+            Node c = stack.remove(stack.size() - 1);
+            if (c != node || includeRight)
+                pushLeft(c.right);
+            remaining--;
+            action.accept(c.data);
+            return true;
+        }
+
+        /**
+         * Pushes n and all of its left descendants onto the traversal stack
+         * 
+         * @param n - root of the subtree
+         */
+        private void pushLeft(Node n) {
+            while (n != null) {
+                stack.add(n);
+                n = n.left;
             }
-            return null;
         }
 
         /**
-         * Removes from the underlying collection the last element returned by this
-         * iterator (optional operation). This method can be called only once per call
-         * to next(). This operation is unsupported by this program.
+         * Returns the number of elements that remain to be traversed
          * 
-         * @throws UnsupportedOperationException - this operation is unsupported
+         * @return the exact number of remaining elements
          */
         @Override
-        public void remove() throws UnsupportedOperationException {
+        public long estimateSize() {
+            return remaining;
+        }
 
-            throw new UnsupportedOperationException("remove from iterator not supported");
+        /**
+         * Returns the characteristics of this Spliterator object
+         * 
+         * @return ORDERED, DISTINCT, SORTED, SIZED, SUBSIZED and NONNULL
+         */
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | SIZED | SUBSIZED | NONNULL;
+        }
 
+        /**
+         * Returns null because the elements are sorted by their natural ordering
+         * 
+         * @return null
+         */
+        @Override
+        public Comparator<? super E> getComparator() {
+            return null;
         }
 
     }
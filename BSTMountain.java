@@ -1,6 +1,30 @@
 package project4;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class inherits from the BST<E> class as BST<RestStop>. This
@@ -13,21 +37,69 @@ import java.util.ArrayList;
 public class BSTMountain extends BST<RestStop> {
 
     /**
-     * Represents a list of RestStop objects that comprise the tree
+     * Flag recording that a hiker used food at a RestStop
      */
-    private ArrayList<RestStop> stops = new ArrayList<RestStop>();
+    private static final int FOOD = 1;
     /**
-     * Represents a list of paths down the BSTMountain
+     * Flag recording that a hiker used a raft at a RestStop
      */
-    private ArrayList<ArrayList<RestStop>> listOfPaths = new ArrayList<ArrayList<RestStop>>();
+    private static final int RAFT = 2;
     /**
-     * Helper variable for validating paths given a Hiker object
+     * Flag recording that a hiker used an axe at a RestStop
      */
-    private boolean validPath;
+    private static final int AXE = 4;
     /**
-     * Helper variable for validating RestStop objects given a Hiker object
+     * Obstacle mask bit of a river
      */
-    private boolean validStop;
+    private static final int RIVER = Obstacle.RIVER.bit();
+    /**
+     * Obstacle mask bit of a fallen tree
+     */
+    private static final int FALLEN_TREE = Obstacle.FALLEN_TREE.bit();
+    /**
+     * Stage of a suspended hike at a node that has not been entered yet
+     */
+    private static final int ENTER = 0;
+    /**
+     * Stage of a suspended hike at a node whose left subtree has been hiked
+     */
+    private static final int RIGHT = 1;
+    /**
+     * Stage of a suspended hike at a node whose subtrees have been hiked
+     */
+    private static final int LEAVE = 2;
+    /**
+     * Largest subtree that a parallel hike hikes in a single task
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+    /**
+     * Most hike results kept by hikeCached
+     */
+    private static final int CACHE_SIZE = 256;
+    /**
+     * Size of the buffers used to write and read snapshot files
+     */
+    private static final int SNAPSHOT_BUFFER = 1 << 16;
+    /**
+     * Encoding of the RestStop objects in snapshots
+     */
+    private static final ElementCodec<RestStop> STOP_CODEC = new StopCodec();
+
+    /**
+     * Path indexes kept up to date as RestStop objects are added and removed
+     */
+    private final ArrayList<PathIndex> indexes = new ArrayList<PathIndex>();
+    /**
+     * Results of hikeCached for the current version of this BSTMountain
+     */
+    private final HikeCache cache = new HikeCache();
+
+    /**
+     * Constructor creates an empty BSTMountain, to which RestStop objects can be
+     * added one at a time with the add method
+     */
+    public BSTMountain() {
+    }
 
     /**
      * Constructor creates this BSTMountain using the stops Array,
@@ -46,23 +118,119 @@ public class BSTMountain extends BST<RestStop> {
 
     }
 
+    /**
+     * Writes this BSTMountain to a binary snapshot file, which readSnapshot turns
+     * back into a mountain of the same shape without parsing or comparing any
+     * RestStop objects. Each RestStop is stored as its label, its count of each
+     * Supply and its obstacle mask.
+     * 
+     * @param file - file the snapshot is written to
+     * @throws IOException - if the file cannot be written
+     */
+    public void writeSnapshot(File file) throws IOException {
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), SNAPSHOT_BUFFER))) {
+            writeSnapshot(out, STOP_CODEC);
+        }
+    }
+
+    /**
+     * Reads a BSTMountain object from a snapshot file written by writeSnapshot
+     * 
+     * @param file - file the snapshot is read from
+     * @return BSTMountain - mountain of the same shape and RestStops as the one
+     *         written
+     * @throws IOException - if the file cannot be read or is not a valid snapshot
+     */
+    public static BSTMountain readSnapshot(File file) throws IOException {
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), SNAPSHOT_BUFFER))) {
+            return readSnapshot(in);
+        }
+    }
+
+    /**
+     * Reads a BSTMountain object from a snapshot written by writeSnapshot
+     * 
+     * @param in - input the snapshot is read from
+     * @return BSTMountain - mountain of the same shape and RestStops as the one
+     *         written
+     * @throws IOException - if the input cannot be read or is not a valid snapshot
+     */
+    public static BSTMountain readSnapshot(DataInput in) throws IOException {
+
+        checkSnapshotHeader(in);
+        if (in.readBoolean())
+            throw new IOException("not a snapshot of a BSTMountain");
+        BSTMountain mountain = new BSTMountain();
+        mountain.readNodes(in, STOP_CODEC);
+        return mountain;
+    }
+
+    /**
+     * Binary encoding of a RestStop object in a snapshot
+     */
+    private static class StopCodec implements ElementCodec<RestStop> {
+
+        @Override
+        public void write(RestStop stop, DataOutput out) throws IOException {
+
+            byte[] label = stop.getLabel().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(label.length);
+            out.write(label);
+            for (Supply supply : Supply.ALL) {
+                out.writeInt(stop.getSupplyCount(supply));
+            }
+            out.writeInt(stop.getObstacleMask());
+        }
+
+        @Override
+        public RestStop read(DataInput in) throws IOException {
+
+            int length = in.readInt();
+            if (length < 0)
+                throw new IOException("corrupt snapshot: negative label length");
+            byte[] label = new byte[length];
+            in.readFully(label);
+            RestStop stop = new RestStop(new String(label, StandardCharsets.UTF_8));
+            for (Supply supply : Supply.ALL) {
+                try {
+                    stop.addSupply(supply, in.readInt());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("corrupt snapshot: " + e.getMessage());
+                }
+            }
+            int obstacles = in.readInt();
+            if (obstacles >>> Obstacle.ALL.length != 0)
+                throw new IOException("corrupt snapshot: unknown obstacle bits");
+            for (Obstacle obstacle : Obstacle.ALL) {
+                if ((obstacles & obstacle.bit()) != 0)
+                    stop.addObstacle(obstacle);
+            }
+            return stop;
+        }
+    }
+
     /**
      * Returns a two dimensional ArrayList object of RestStop objects (an ArrayList
      * of Arraylist<RestStop> objects) representing all paths down the
-     * BSTMountain object
+     * BSTMountain object, regardless of any hiker. Each call builds a new list.
      * 
      * @return ArrayList<ArrayList<RestStop>> - list of all paths down the
      *         BSTMountain
      */
-    private ArrayList<ArrayList<RestStop>> getAllPaths() {
+    public ArrayList<ArrayList<RestStop>> getAllPaths() {
 
+        ArrayList<ArrayList<RestStop>> listOfPaths = new ArrayList<ArrayList<RestStop>>();
         if (getRoot() == null)
             return listOfPaths;
         /**
          * Longest path is the tree's height with each leaf being at height 1, so array
          * length is set to the height of the BST representing this BSTMountain
          */
-        helperPaths(getRoot(), new RestStop[height()], 0);
+        helperPaths(getRoot(), new RestStop[height()], 0, listOfPaths);
 
         return listOfPaths;
     }
@@ -70,12 +238,13 @@ public class BSTMountain extends BST<RestStop> {
     /**
      * Recursive helper method for getAllPaths method
      * 
-     * @param root   - root node reference
-     * @param array  - an array to store each possible path down the BST (without
-     *               a hiker involved)
-     * @param length - keeps track of index in array
+     * @param root        - root node reference
+     * @param array       - an array to store each possible path down the BST
+     *                    (without a hiker involved)
+     * @param length      - keeps track of index in array
+     * @param listOfPaths - list the paths are added to
      */
-    private void helperPaths(Node root, RestStop[] array, int length) {
+    private void helperPaths(Node root, RestStop[] array, int length, ArrayList<ArrayList<RestStop>> listOfPaths) {
 
         if (root == null)
             return;
@@ -83,16 +252,14 @@ public class BSTMountain extends BST<RestStop> {
         length++;
         if (root.left == null && root.right == null) {
 
+            ArrayList<RestStop> stops = new ArrayList<RestStop>(length);
             for (int i = 0; i < length; i++) {
                 stops.add(array[i]);
             }
-            ArrayList<RestStop> stops1 = new ArrayList<RestStop>(stops);
             /**
              * Adds path to listOfPaths
              */
-            listOfPaths.add(stops1);
-
-            stops.clear();
+            listOfPaths.add(stops);
 
             return;
 
@@ -100,11 +267,11 @@ public class BSTMountain extends BST<RestStop> {
             /**
              * Traverses left subtree
              */
-            helperPaths(root.left, array, length);
+            helperPaths(root.left, array, length, listOfPaths);
             /**
              * Traverses right subtree
              */
-            helperPaths(root.right, array, length);
+            helperPaths(root.right, array, length, listOfPaths);
 
         }
     }
@@ -114,54 +281,1122 @@ public class BSTMountain extends BST<RestStop> {
      * of Arraylist<RestStop> objects) representing all valid paths down the
      * BSTMountain object with a passed Hiker obejct
      * 
+     * A valid path ends at a leaf on the lowest level of the mountain, and the
+     * hiker has to eat food at every RestStop except the last one, use a raft at
+     * every river and use an axe at every fallen tree, collecting the supplies of
+     * each RestStop before any are used. Every path starts with the supplies the
+     * hiker carries when this method is called, and the Hiker object holds the
+     * same supplies again when this method returns.
+     * 
+     * The mountain is walked once, depth first. Supplies are collected and used on
+     * the way down and given back on the way up, so paths that share a prefix
+     * share the work for it, and a subtree is skipped entirely as soon as the path
+     * to it cannot be completed or cannot reach the lowest level.
+     * 
+     * All state of a hike lives in the call itself, so hike may be called
+     * repeatedly, and concurrently from several threads as long as each call is
+     * given its own Hiker object and the mountain is not modified meanwhile.
+     * 
      * @param h - Hiker object to be referenced
      * @return ArrayList<ArrayList<RestStop>> - list of valid paths given the passed
      *         Hiker object
      */
     public ArrayList<ArrayList<RestStop>> hike(Hiker h) {
 
-        ArrayList<ArrayList<RestStop>> allPaths = this.getAllPaths();
         ArrayList<ArrayList<RestStop>> allValidPaths = new ArrayList<ArrayList<RestStop>>();
-        ArrayList<String> obstacles;
+        hike(h, path -> allValidPaths.add(new ArrayList<RestStop>(path)));
+        return allValidPaths;
+    }
+
+    /**
+     * Hikes the BSTMountain object with a passed Hiker object like hike(Hiker), but
+     * hands each valid path to the visitor as soon as it is found instead of
+     * collecting them, so memory use stays proportional to the height of the
+     * mountain. The hike stops early if the visitor returns false.
+     * 
+     * @param h       - Hiker object to be referenced
+     * @param visitor - receives the valid paths in left to right order
+     * @return true if every valid path was visited, or false if the visitor stopped
+     *         the hike
+     */
+    public boolean hike(Hiker h, PathVisitor visitor) {
+
+        if (getRoot() == null)
+            return true;
+
+        RestStop[] path = new RestStop[height()];
+        return hike(getRoot(), 0, h, path, new PathView(path), visitor);
+    }
+
+    /**
+     * Returns the valid paths down the BSTMountain object for a passed Hiker object
+     * like hike(Hiker), reusing the result of an earlier call when the mountain
+     * has not changed since and the hiker carries the same supplies. The most
+     * recently used CACHE_SIZE results are kept; all of them are dropped as soon
+     * as the version of the mountain changes. The returned lists are shared
+     * between callers and cannot be modified.
+     * 
+     * The version only changes when RestStop objects are added or removed, so a
+     * RestStop must not have supplies or obstacles added once it is in the
+     * mountain; cached results would silently keep the old supplies. To change a
+     * RestStop, remove it, change it and add it again.
+     * 
+     * @param h - Hiker object to be referenced; it is not modified
+     * @return List<List<RestStop>> - unmodifiable list of valid paths given the
+     *         passed Hiker object
+     */
+    public List<List<RestStop>> hikeCached(Hiker h) {
+
+        Inventory key = new Inventory(h.snapshot());
+        int version = getModCount();
+        synchronized (cache) {
+            if (cache.version != version) {
+                cache.clear();
+                cache.version = version;
+            }
+            List<List<RestStop>> cached = cache.get(key);
+            if (cached != null)
+                return cached;
+        }
+
+        ArrayList<List<RestStop>> allValidPaths = new ArrayList<List<RestStop>>();
+        hike(new Hiker(h), path -> allValidPaths.add(Collections.unmodifiableList(new ArrayList<RestStop>(path))));
+        List<List<RestStop>> result = Collections.unmodifiableList(allValidPaths);
+
+        synchronized (cache) {
+            if (cache.version == version)
+                cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Least recently used hike results, for the version of the mountain they were
+     * computed for
+     */
+    private static class HikeCache extends LinkedHashMap<Inventory, List<List<RestStop>>> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Version of the mountain the cached results belong to
+         */
+        private int version;
+
+        /**
+         * Constructs an empty HikeCache object in access order
+         */
+        HikeCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Inventory, List<List<RestStop>>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    }
+
+    /**
+     * Starting supplies of a hiker, used as the key of a cached hike result
+     */
+    private static class Inventory {
+
+        /**
+         * Supply counters indexed by Supply ordinal
+         */
+        private final int[] supplies;
+
         /**
-         * Traverses each path and adds and removes supplies from passed Hiker object
-         * for each RestStop object and its obstacle and supply lists
+         * Constructs an Inventory object over a snapshot of a hiker's supplies
+         * 
+         * @param supplies - supply counters, not copied
          */
-        for (int n = 0; n < allPaths.size(); n++) {
-            validPath = true;
-            for (int o = 0; o < allPaths.get(n).size(); o++) {
+        Inventory(int[] supplies) {
+            this.supplies = supplies;
+        }
 
-                validStop = true;
-                h.addSupplies(allPaths.get(n).get(o));
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Inventory && Arrays.equals(supplies, ((Inventory) o).supplies);
+        }
 
-                obstacles = allPaths.get(n).get(o).getObstacles();
-                if (o < allPaths.get(n).size() - 1) {
-                    if (!(h.removeSupply("food")))
-                        validStop = false;
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(supplies);
+        }
+    }
+
+    /**
+     * Returns a lazily evaluated Stream of the valid paths down the BSTMountain
+     * object for a passed Hiker object, in left to right order. The mountain is
+     * only walked as far as needed to produce the paths that are consumed, so a
+     * short-circuiting operation such as findFirst or limit ends the hike early.
+     * The stream works on its own copy of the hiker's supplies; the mountain must
+     * not be modified while the stream is in use.
+     * 
+     * @param h - Hiker object to be referenced
+     * @return Stream<ArrayList<RestStop>> - the valid paths given the passed Hiker
+     *         object
+     */
+    public Stream<ArrayList<RestStop>> hikeStream(Hiker h) {
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new PathIterator(new Hiker(h)),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Counts the valid paths down the BSTMountain object for a passed Hiker object
+     * without building any of them. The count equals hike(h).size(), and the hiker
+     * has the same supplies again when this method returns.
+     * 
+     * @param h - Hiker object to be referenced
+     * @return number of valid paths given the passed Hiker object
+     */
+    public long countValidPaths(Hiker h) {
+        return countPaths(getRoot(), 0, h);
+    }
+
+    /**
+     * Checks whether the passed Hiker object has at least one valid path down the
+     * BSTMountain object. The hike stops at the first valid path found, and the
+     * hiker has the same supplies again when this method returns.
+     * 
+     * @param h - Hiker object to be referenced
+     * @return true if a valid path exists, false otherwise
+     */
+    public boolean hasValidPath(Hiker h) {
+        return !hike(h, path -> false);
+    }
+
+    /**
+     * Recursive helper method for countValidPaths method
+     * 
+     * @param n     - node reached by the hiker
+     * @param depth - level of n, where the root is at level 0
+     * @param h     - Hiker object holding the supplies left on the path to n
+     * @return number of valid paths through n
+     */
+    private long countPaths(Node n, int depth, Hiker h) {
+
+        if (n == null || depth + n.height < height())
+            return 0;
+
+        boolean leaf = n.left == null && n.right == null;
+        int used = enter(h, n.data, leaf);
+        if (used < 0)
+            return 0;
+
+        long count = leaf ? 1 : countPaths(n.left, depth + 1, h) + countPaths(n.right, depth + 1, h);
+        leave(h, n.data, used);
+        return count;
+    }
+
+    /**
+     * Hikes the BSTMountain object with many Hiker objects at once. The mountain
+     * is walked a single time: the supplies and obstacles of each RestStop are
+     * decoded once and applied to every hiker still on the path, and a subtree is
+     * skipped as soon as no hiker can reach it. The hikers are not modified.
+     * 
+     * @param hikers - Hiker objects to be referenced
+     * @return ArrayList<ArrayList<ArrayList<RestStop>>> - for each hiker, in the
+     *         order given, the list of valid paths that hike(Hiker) would return
+     */
+    public ArrayList<ArrayList<ArrayList<RestStop>>> hikeAll(List<Hiker> hikers) {
+
+        ArrayList<ArrayList<ArrayList<RestStop>>> results = new ArrayList<ArrayList<ArrayList<RestStop>>>(
+                hikers.size());
+        for (int i = 0; i < hikers.size(); i++) {
+            results.add(new ArrayList<ArrayList<RestStop>>());
+        }
+        if (getRoot() == null || hikers.isEmpty())
+            return results;
+
+        new BatchHike(hikers, results).hike(getRoot(), 0, hikers.size());
+        return results;
+    }
+
+    /**
+     * State of a hike by many hikers at once. The supplies of all hikers are kept
+     * in one array, and the hikers still on the path at each level are listed by
+     * index, so a RestStop is handled with plain counter arithmetic per hiker.
+     */
+    private class BatchHike {
+
+        /**
+         * Number of supply types
+         */
+        private final int types = Supply.ALL.length;
+        /**
+         * Supply counters of every hiker; hiker k owns entries k * types to
+         * k * types + types - 1
+         */
+        private final int[] supplies;
+        /**
+         * Indexes of the hikers that reached each level, created on first use
+         */
+        private final int[][] alive;
+        /**
+         * Change in each supply counter at the RestStop of each level
+         */
+        private final int[][] delta;
+        /**
+         * RestStop objects on the current path
+         */
+        private final RestStop[] path;
+        /**
+         * Valid paths found for each hiker
+         */
+        private final ArrayList<ArrayList<ArrayList<RestStop>>> results;
+
+        /**
+         * Constructs a BatchHike object starting from the supplies of each hiker
+         * 
+         * @param hikers  - Hiker objects to be referenced
+         * @param results - one empty list of paths per hiker
+         */
+        BatchHike(List<Hiker> hikers, ArrayList<ArrayList<ArrayList<RestStop>>> results) {
+            this.results = results;
+            supplies = new int[hikers.size() * types];
+            for (int k = 0; k < hikers.size(); k++) {
+                System.arraycopy(hikers.get(k).snapshot(), 0, supplies, k * types, types);
+            }
+            alive = new int[height() + 1][];
+            alive[0] = new int[hikers.size()];
+            for (int k = 0; k < hikers.size(); k++) {
+                alive[0][k] = k;
+            }
+            delta = new int[height()][types];
+            path = new RestStop[height()];
+        }
+
+        /**
+         * Hikes the subtree rooted at n with the hikers listed at level depth
+         * 
+         * @param n     - node reached by the hikers
+         * @param depth - level of n, where the root is at level 0
+         * @param count - number of hikers listed at level depth
+         */
+        void hike(Node n, int depth, int count) {
+
+            if (n == null || count == 0 || depth + n.height < height())
+                return;
+
+            boolean leaf = n.left == null && n.right == null;
+            int[] change = delta[depth];
+            change(n.data, leaf, change);
+
+            /**
+             * Moves the hikers that can pass this RestStop to the next level
+             */
+            if (alive[depth + 1] == null)
+                alive[depth + 1] = new int[alive[0].length];
+            int[] from = alive[depth];
+            int[] to = alive[depth + 1];
+            int passed = 0;
+            for (int i = 0; i < count; i++) {
+                int base = from[i] * types;
+                boolean pass = true;
+                for (int s = 0; s < types && pass; s++) {
+                    pass = supplies[base + s] + change[s] >= 0;
+                }
+                if (pass)
+                    to[passed++] = from[i];
+            }
+            if (passed == 0)
+                return;
+
+            path[depth] = n.data;
+            if (leaf) {
+                ArrayList<RestStop> stops = new ArrayList<RestStop>(depth + 1);
+                for (int i = 0; i <= depth; i++) {
+                    stops.add(path[i]);
+                }
+                results.get(to[0]).add(stops);
+                for (int i = 1; i < passed; i++) {
+                    results.get(to[i]).add(new ArrayList<RestStop>(stops));
+                }
+                return;
+            }
+
+            apply(to, passed, change, 1);
+            hike(n.left, depth + 1, passed);
+            hike(n.right, depth + 1, passed);
+            apply(to, passed, change, -1);
+        }
+
+        /**
+         * Adds or takes back the change in supplies at a RestStop for a list of
+         * hikers
+         * 
+         * @param hikers - indexes of the hikers
+         * @param count  - number of hikers listed
+         * @param change - change in each supply counter
+         * @param sign   - 1 to apply the change, -1 to undo it
+         */
+        private void apply(int[] hikers, int count, int[] change, int sign) {
+            for (int i = 0; i < count; i++) {
+                int base = hikers[i] * types;
+                for (int s = 0; s < types; s++) {
+                    supplies[base + s] += sign * change[s];
                 }
-                if (obstacles.contains("river")) {
-                    if (!(h.removeSupply("raft")))
-                        validStop = false;
+            }
+        }
+    }
+
+    /**
+     * Creates an index of the valid paths down the BSTMountain object for a Hiker
+     * object starting with the supplies the passed hiker carries now. The index is
+     * kept up to date as RestStop objects are added to and removed from the
+     * mountain: an edit only re-evaluates the paths through the part of the
+     * mountain it changed. Any other change to the mountain, such as clear or a
+     * set operation, makes the index rebuild itself on its next query.
+     * 
+     * Changes to a RestStop object already in the mountain are not seen by the
+     * index, so its supplies and obstacles must not be changed while it is in the
+     * mountain. To change a RestStop, remove it, change it and add it again.
+     * 
+     * @param h - Hiker object whose supplies the paths start with; it is not
+     *          modified
+     * @return PathIndex - index of the valid paths for the hiker
+     */
+    public PathIndex createPathIndex(Hiker h) {
+
+        PathIndex index = new PathIndex(h.snapshot());
+        indexes.add(index);
+        return index;
+    }
+
+    /**
+     * Stops keeping a PathIndex object up to date. Queries on a removed index
+     * rebuild it from scratch whenever the mountain has changed.
+     * 
+     * @param index - index returned by createPathIndex
+     * @return true if the index was kept up to date by this BSTMountain
+     */
+    public boolean removePathIndex(PathIndex index) {
+        return indexes.remove(index);
+    }
+
+    /**
+     * Adds a RestStop object to this BSTMountain like BST.add, and updates the
+     * path indexes for the paths through the new RestStop
+     */
+    @Override
+    public boolean add(RestStop e) throws NullPointerException {
+
+        if (indexes.isEmpty() || e == null || isBalanced())
+            return super.add(e);
+
+        Node parent = null;
+        Node n = getRoot();
+        while (n != null && n.compareTo(e) != 0) {
+            parent = n;
+            n = n.compareTo(e) > 0 ? n.left : n.right;
+        }
+        if (n != null && n.data == e)
+            return false;
+
+        ArrayList<PathIndex> current = currentIndexes();
+        boolean added;
+        if (n != null) {
+            /**
+             * A RestStop with the same label is replaced, which changes every path
+             * through it
+             */
+            int depth = depth(n);
+            for (PathIndex index : current) {
+                index.update(n, depth, false);
+            }
+            added = super.add(e);
+            for (PathIndex index : current) {
+                index.update(n, depth, true);
+            }
+        } else {
+            /**
+             * The new RestStop becomes a leaf below parent, which stops being the end
+             * of a path if it was a leaf
+             */
+            int depth = parent == null ? 0 : depth(parent) + 1;
+            if (parent != null && parent.left == null && parent.right == null) {
+                for (PathIndex index : current) {
+                    index.update(parent, depth - 1, false);
+                }
+            }
+            added = super.add(e);
+            Node leaf = parent == null ? getRoot() : parent.compareTo(e) > 0 ? parent.left : parent.right;
+            for (PathIndex index : current) {
+                index.update(leaf, depth, true);
+            }
+        }
+        synced(current);
+        return added;
+    }
+
+    /**
+     * Removes a RestStop object from this BSTMountain like BST.remove, and updates
+     * the path indexes for the paths below the removed RestStop
+     */
+    @Override
+    public boolean remove(Object o) throws ClassCastException, NullPointerException {
+
+        if (indexes.isEmpty() || !(o instanceof RestStop) || isBalanced())
+            return super.remove(o);
+
+        RestStop stop = (RestStop) o;
+        Node n = getRoot();
+        while (n != null && n.compareTo(stop) != 0) {
+            n = n.compareTo(stop) > 0 ? n.left : n.right;
+        }
+        if (n == null)
+            return false;
+
+        ArrayList<PathIndex> current = currentIndexes();
+        Node parent = n.parent;
+        boolean left = parent != null && parent.left == n;
+        int depth = depth(n);
+        for (PathIndex index : current) {
+            index.update(n, depth, false);
+        }
+        super.remove(o);
+
+        /**
+         * The subtree that took the place of n moves up a level, or parent becomes a
+         * leaf if n was its only child
+         */
+        Node replacement = parent == null ? getRoot() : left ? parent.left : parent.right;
+        if (replacement != null) {
+            for (PathIndex index : current) {
+                index.update(replacement, depth, true);
+            }
+        } else if (parent != null && parent.left == null && parent.right == null) {
+            for (PathIndex index : current) {
+                index.update(parent, depth - 1, true);
+            }
+        }
+        synced(current);
+        return true;
+    }
+
+    /**
+     * Returns the path indexes that are up to date with this BSTMountain
+     * 
+     * @return list of the indexes that can be updated incrementally
+     */
+    private ArrayList<PathIndex> currentIndexes() {
+
+        ArrayList<PathIndex> current = new ArrayList<PathIndex>();
+        for (PathIndex index : indexes) {
+            if (index.version == getModCount())
+                current.add(index);
+        }
+        return current;
+    }
+
+    /**
+     * Marks path indexes as up to date with this BSTMountain after they have been
+     * updated for an edit
+     * 
+     * @param current - indexes that were updated
+     */
+    private void synced(ArrayList<PathIndex> current) {
+        for (PathIndex index : current) {
+            index.version = getModCount();
+        }
+    }
+
+    /**
+     * Returns the level of a node, where the root is at level 0
+     * 
+     * @param n - node in this BSTMountain
+     * @return number of ancestors of n
+     */
+    private int depth(Node n) {
+
+        int depth = 0;
+        for (Node p = n.parent; p != null; p = p.parent) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Index of the valid paths down the mountain for one starting inventory. Each
+     * RestStop that ends a path the hiker can complete is kept in a balanced BST
+     * for its level, so the valid paths are the entries on the lowest level, in
+     * left to right order, however the height of the mountain changes. A PathIndex
+     * is not safe for use by several threads at once, and does not see changes
+     * made to a RestStop while it is in the mountain.
+     */
+    public class PathIndex {
+
+        /**
+         * Supplies the hiker starts with, indexed by Supply ordinal
+         */
+        private final int[] start;
+        /**
+         * Ends of the paths the hiker can complete, by level
+         */
+        private final ArrayList<BST<RestStop>> ends = new ArrayList<BST<RestStop>>();
+        /**
+         * Modification count of the mountain this index is up to date with
+         */
+        private int version;
+
+        /**
+         * Constructs a PathIndex object and indexes the whole mountain
+         * 
+         * @param start - supplies the hiker starts with
+         */
+        private PathIndex(int[] start) {
+            this.start = start;
+            rebuild();
+        }
+
+        /**
+         * Returns the valid paths down the mountain, as hike(Hiker) would for a hiker
+         * with the indexed supplies
+         * 
+         * @return ArrayList<ArrayList<RestStop>> - list of valid paths
+         */
+        public ArrayList<ArrayList<RestStop>> getValidPaths() {
+
+            ArrayList<ArrayList<RestStop>> allValidPaths = new ArrayList<ArrayList<RestStop>>();
+            BST<RestStop> lowest = lowest();
+            if (lowest == null)
+                return allValidPaths;
+
+            for (RestStop end : lowest) {
+                ArrayList<RestStop> path = new ArrayList<RestStop>(height());
+                Node n = getRoot();
+                while (n.compareTo(end) != 0) {
+                    path.add(n.data);
+                    n = n.compareTo(end) > 0 ? n.left : n.right;
                 }
-                if (obstacles.contains("fallen tree")) {
-                    if (!(h.removeSupply("axe")))
-                        validStop = false;
+                path.add(n.data);
+                allValidPaths.add(path);
+            }
+            return allValidPaths;
+        }
+
+        /**
+         * Returns the number of valid paths down the mountain
+         * 
+         * @return number of valid paths
+         */
+        public int countValidPaths() {
+
+            BST<RestStop> lowest = lowest();
+            return lowest == null ? 0 : lowest.size();
+        }
+
+        /**
+         * Checks whether there is at least one valid path down the mountain
+         * 
+         * @return true if a valid path exists, false otherwise
+         */
+        public boolean hasValidPath() {
+            return countValidPaths() > 0;
+        }
+
+        /**
+         * Returns the ends of the paths the hiker can complete on the lowest level of
+         * the mountain, rebuilding the index first if it is out of date
+         * 
+         * @return BST of path ends, or null if there are none
+         */
+        private BST<RestStop> lowest() {
+
+            if (version != getModCount())
+                rebuild();
+            if (getRoot() == null || height() > ends.size())
+                return null;
+            return ends.get(height() - 1);
+        }
+
+        /**
+         * Indexes the whole mountain from scratch
+         */
+        private void rebuild() {
+
+            ends.clear();
+            if (getRoot() != null)
+                update(getRoot(), 0, true);
+            version = getModCount();
+        }
+
+        /**
+         * Adds or removes the ends of the paths through the subtree rooted at n that
+         * the hiker can complete
+         * 
+         * @param n     - root of the subtree
+         * @param depth - level of n
+         * @param add   - true to add the path ends, false to remove them
+         */
+        private void update(Node n, int depth, boolean add) {
+
+            int[] supplies = start.clone();
+            int[] change = new int[supplies.length];
+            Node a = getRoot();
+            while (a != n) {
+                if (!pass(a.data, false, supplies, change))
+                    return;
+                a = a.compareTo(n.data) > 0 ? a.left : a.right;
+            }
+            update(n, depth, supplies, add);
+        }
+
+        /**
+         * Recursive helper method for update method
+         * 
+         * @param n        - node reached by the hiker
+         * @param depth    - level of n
+         * @param supplies - supplies left on the path to n
+         * @param add      - true to add the path ends, false to remove them
+         */
+        private void update(Node n, int depth, int[] supplies, boolean add) {
+
+            if (n == null)
+                return;
+
+            boolean leaf = n.left == null && n.right == null;
+            int[] change = new int[supplies.length];
+            if (pass(n.data, leaf, supplies, change)) {
+                if (!leaf) {
+                    update(n.left, depth + 1, supplies, add);
+                    update(n.right, depth + 1, supplies, add);
+                } else if (add) {
+                    while (ends.size() <= depth) {
+                        ends.add(new BST<RestStop>(true));
+                    }
+                    ends.get(depth).add(n.data);
+                } else if (depth < ends.size()) {
+                    ends.get(depth).remove(n.data);
                 }
-                if (o == allPaths.get(n).size() - 1) {
-                    if (o < this.height() - 1)
-                        validStop = false;
+            }
+            for (int s = 0; s < supplies.length; s++) {
+                supplies[s] -= change[s];
+            }
+        }
+
+        /**
+         * Applies the change in supplies at a RestStop object
+         * 
+         * @param stop     - RestStop object passed
+         * @param last     - true if the RestStop is the end of the path
+         * @param supplies - supplies of the hiker, updated in place
+         * @param change   - receives the change applied
+         * @return true if the hiker can pass the RestStop
+         */
+        private boolean pass(RestStop stop, boolean last, int[] supplies, int[] change) {
+
+            change(stop, last, change);
+            boolean pass = true;
+            for (int s = 0; s < supplies.length; s++) {
+                supplies[s] += change[s];
+                pass &= supplies[s] >= 0;
+            }
+            return pass;
+        }
+    }
+
+    /**
+     * Hikes the BSTMountain object with a passed Hiker object like hike(Hiker), but
+     * splits the work at subtree boundaries across the threads of the common
+     * ForkJoinPool.
+     * 
+     * @param h - Hiker object to be referenced; it is not modified
+     * @return ArrayList<ArrayList<RestStop>> - list of valid paths given the passed
+     *         Hiker object, in the same order as hike(Hiker)
+     */
+    public ArrayList<ArrayList<RestStop>> hikeParallel(Hiker h) {
+        return hikeParallel(h, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Hikes the BSTMountain object with a passed Hiker object like hike(Hiker), but
+     * splits the work at subtree boundaries across the threads of the given pool.
+     * Each task hikes with its own copy of the supplies, and the paths found in
+     * the left subtree are placed before those found in the right subtree, so the
+     * result is identical to the sequential hike. The mountain must not be
+     * modified while the hike runs.
+     * 
+     * @param h    - Hiker object to be referenced; it is not modified
+     * @param pool - pool whose threads hike the subtrees
+     * @return ArrayList<ArrayList<RestStop>> - list of valid paths given the passed
+     *         Hiker object, in the same order as hike(Hiker)
+     */
+    public ArrayList<ArrayList<RestStop>> hikeParallel(Hiker h, ForkJoinPool pool) {
+
+        if (getRoot() == null)
+            return new ArrayList<ArrayList<RestStop>>();
+
+        return pool.invoke(new HikeTask(getRoot(), 0, new Hiker(h), new RestStop[height()]));
+    }
+
+    /**
+     * Task that hikes one subtree of the mountain. Subtrees larger than
+     * PARALLEL_THRESHOLD nodes are split where they have two children: the left
+     * subtree is forked as a new task with copies of the supplies and path, and the
+     * right subtree is hiked by the current task. A node with one child is passed
+     * by the current task without forking.
+     */
+    private class HikeTask extends RecursiveTask<ArrayList<ArrayList<RestStop>>> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Root of the subtree hiked by this task
+         */
+        private final Node n;
+        /**
+         * Level of n, where the root of the mountain is at level 0
+         */
+        private final int depth;
+        /**
+         * Supplies left on the path to n, owned by this task
+         */
+        private final Hiker h;
+        /**
+         * RestStop objects on the path to n, owned by this task
+         */
+        private final RestStop[] path;
+
+        /**
+         * Constructs a HikeTask object for a subtree
+         * 
+         * @param n     - root of the subtree
+         * @param depth - level of n
+         * @param h     - supplies left on the path to n
+         * @param path  - RestStop objects on the path to n
+         */
+        HikeTask(Node n, int depth, Hiker h, RestStop[] path) {
+            this.n = n;
+            this.depth = depth;
+            this.h = h;
+            this.path = path;
+        }
+
+        @Override
+        protected ArrayList<ArrayList<RestStop>> compute() {
+
+            ArrayList<ArrayList<RestStop>> allValidPaths = new ArrayList<ArrayList<RestStop>>();
+            Node node = n;
+            int level = depth;
+            while (true) {
+                if (node == null || level + node.height < height())
+                    return allValidPaths;
+
+                if (node.size <= PARALLEL_THRESHOLD) {
+                    hike(node, level, h, path, new PathView(path),
+                            p -> allValidPaths.add(new ArrayList<RestStop>(p)));
+                    return allValidPaths;
                 }
-                if (!(validStop)) {
-                    validPath = false;
+
+                /**
+                 * A subtree this large has at least one child, so node is never the end
+                 * of a path
+                 */
+                if (enter(h, node.data, false) < 0)
+                    return allValidPaths;
+                path[level] = node.data;
+
+                /**
+                 * A node with a single child is followed by this task, so the supplies
+                 * and path are only copied where the hike really branches
+                 */
+                if (node.left == null || node.right == null) {
+                    node = node.left != null ? node.left : node.right;
+                    level++;
+                    continue;
                 }
+
+                HikeTask left = new HikeTask(node.left, level + 1, new Hiker(h), path.clone());
+                left.fork();
+                HikeTask right = new HikeTask(node.right, level + 1, h, path);
+                ArrayList<ArrayList<RestStop>> rightPaths = right.compute();
+
+                allValidPaths.addAll(left.join());
+                allValidPaths.addAll(rightPaths);
+                return allValidPaths;
             }
+        }
+    }
+
+    /**
+     * Recursive helper method for hike method
+     * 
+     * @param n       - node reached by the hiker
+     * @param depth   - level of n, where the root is at level 0
+     * @param h       - Hiker object holding the supplies left on the path to n
+     * @param path    - RestStop objects on the path to n
+     * @param view    - read-only view of path handed to the visitor
+     * @param visitor - receives the valid paths
+     * @return false if the visitor stopped the hike
+     */
+    private boolean hike(Node n, int depth, Hiker h, RestStop[] path, PathView view, PathVisitor visitor) {
+
+        if (n == null)
+            return true;
+        /**
+         * Every leaf below n is above the lowest level of the mountain
+         */
+        if (depth + n.height < height())
+            return true;
+
+        boolean leaf = n.left == null && n.right == null;
+        int used = enter(h, n.data, leaf);
+        if (used < 0)
+            return true;
+
+        path[depth] = n.data;
+        boolean proceed;
+        if (leaf) {
+            view.length = depth + 1;
+            proceed = visitor.visit(view);
+        } else {
             /**
-             * Clears any supplies stored in the Hiker object after traversing down a path
+             * Traverses left subtree, then right subtree
              */
-            h.clearSupplies();
-            if (validPath)
-                allValidPaths.add(allPaths.get(n));
+            proceed = hike(n.left, depth + 1, h, path, view, visitor)
+                    && hike(n.right, depth + 1, h, path, view, visitor);
         }
-        return allValidPaths;
+        leave(h, n.data, used);
+        return proceed;
+    }
+
+    /**
+     * Read-only list over the first length entries of a path array
+     */
+    private static class PathView extends AbstractList<RestStop> {
+
+        /**
+         * RestStop objects on the current path
+         */
+        private final RestStop[] path;
+
+        /**
+         * Number of RestStop objects on the current path
+         */
+        private int length;
+
+        /**
+         * Constructs a PathView object over a path array
+         * 
+         * @param path - array holding the current path
+         */
+        PathView(RestStop[] path) {
+            this.path = path;
+        }
+
+        @Override
+        public RestStop get(int index) {
+            if (index < 0 || index >= length)
+                throw new IndexOutOfBoundsException("index out of bounds");
+            return path[index];
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+    }
+
+    /**
+     * Iterator that hikes the mountain one valid path at a time. It performs the
+     * same walk as the recursive hike, keeping the nodes on the current path in
+     * arrays so the walk can be suspended after each valid path.
+     */
+    private class PathIterator implements java.util.Iterator<ArrayList<RestStop>> {
+
+        /**
+         * Hiker object walking the mountain
+         */
+        private final Hiker h;
+        /**
+         * Nodes on the current path
+         */
+        private final ArrayList<Node> nodes = new ArrayList<Node>();
+        /**
+         * Stage of each node on the current path: ENTER, RIGHT or LEAVE
+         */
+        private final int[] stage;
+        /**
+         * Supplies used at each node on the current path
+         */
+        private final int[] used;
+        /**
+         * Next valid path to be returned, or null if it has not been found yet
+         */
+        private ArrayList<RestStop> next;
+
+        /**
+         * Constructs a PathIterator object that starts at the top of the mountain
+         * 
+         * @param h - Hiker object that walks the mountain
+         */
+        PathIterator(Hiker h) {
+            this.h = h;
+            stage = new int[height()];
+            used = new int[height()];
+            push(getRoot());
+        }
+
+        /**
+         * Adds a node to the end of the current path
+         * 
+         * @param n - node to be added, ignored if null
+         */
+        private void push(Node n) {
+            if (n == null)
+                return;
+            stage[nodes.size()] = ENTER;
+            nodes.add(n);
+        }
+
+        /**
+         * Continues the hike until the next valid path is found
+         * 
+         * @return the next valid path, or null if the hike is over
+         */
+        private ArrayList<RestStop> advance() {
+            while (!nodes.isEmpty()) {
+                int top = nodes.size() - 1;
+                Node n = nodes.get(top);
+                if (stage[top] == ENTER) {
+                    boolean leaf = n.left == null && n.right == null;
+                    int u = -1;
+                    if (top + n.height >= height())
+                        u = enter(h, n.data, leaf);
+                    if (u < 0) {
+                        nodes.remove(top);
+                        continue;
+                    }
+                    used[top] = u;
+                    if (leaf) {
+                        stage[top] = LEAVE;
+                        ArrayList<RestStop> path = new ArrayList<RestStop>(top + 1);
+                        for (Node stop : nodes) {
+                            path.add(stop.data);
+                        }
+                        return path;
+                    }
+                    stage[top] = RIGHT;
+                    push(n.left);
+                } else if (stage[top] == RIGHT) {
+                    stage[top] = LEAVE;
+                    push(n.right);
+                } else {
+                    leave(h, n.data, used[top]);
+                    nodes.remove(top);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null)
+                next = advance();
+            return next != null;
+        }
+
+        @Override
+        public ArrayList<RestStop> next() throws NoSuchElementException {
+            if (!hasNext())
+                throw new NoSuchElementException("no more paths");
+            ArrayList<RestStop> path = next;
+            next = null;
+            return path;
+        }
+    }
+
+    /**
+     * Computes the change in each supply counter of a hiker passing a RestStop
+     * object: the supplies collected there minus the supplies it requires
+     * 
+     * @param stop   - RestStop object passed
+     * @param last   - true if the RestStop is the end of the path
+     * @param change - receives the change in each supply counter, indexed by
+     *               Supply ordinal
+     */
+    private static void change(RestStop stop, boolean last, int[] change) {
+
+        for (Supply supply : Supply.ALL) {
+            change[supply.ordinal()] = stop.getSupplyCount(supply);
+        }
+        int obstacles = stop.getObstacleMask();
+        if (!last)
+            change[Supply.FOOD.ordinal()]--;
+        if ((obstacles & RIVER) != 0)
+            change[Supply.RAFT.ordinal()]--;
+        if ((obstacles & FALLEN_TREE) != 0)
+            change[Supply.AXE.ordinal()]--;
+    }
+
+    /**
+     * Collects the supplies of a RestStop object and uses the supplies it requires:
+     * food if the hiker moves on from it, a raft for a river and an axe for a
+     * fallen tree. If the hiker lacks any of them the Hiker object is restored.
+     * 
+     * @param h    - Hiker object arriving at the RestStop
+     * @param stop - RestStop object reached
+     * @param last - true if the RestStop is the end of the path
+     * @return flags of the supplies used, or -1 if the hiker cannot pass the
+     *         RestStop
+     */
+    private int enter(Hiker h, RestStop stop, boolean last) {
+
+        h.addSupplies(stop);
+        int used = 0;
+        int obstacles = stop.getObstacleMask();
+        if (!last) {
+            if (!h.removeSupply(Supply.FOOD))
+                return fail(h, stop, used);
+            used |= FOOD;
+        }
+        if ((obstacles & RIVER) != 0) {
+            if (!h.removeSupply(Supply.RAFT))
+                return fail(h, stop, used);
+            used |= RAFT;
+        }
+        if ((obstacles & FALLEN_TREE) != 0) {
+            if (!h.removeSupply(Supply.AXE))
+                return fail(h, stop, used);
+            used |= AXE;
+        }
+        return used;
+    }
+
+    /**
+     * Helper method for enter that restores the Hiker object after it failed to
+     * pass a RestStop
+     * 
+     * @param h    - Hiker object that failed
+     * @param stop - RestStop object that could not be passed
+     * @param used - flags of the supplies used before the failure
+     * @return -1
+     */
+    private int fail(Hiker h, RestStop stop, int used) {
+        leave(h, stop, used);
+        return -1;
+    }
+
+    /**
+     * Gives back the supplies used at a RestStop object and returns the supplies
+     * collected there, undoing a successful call to enter
+     * 
+     * @param h    - Hiker object leaving the RestStop
+     * @param stop - RestStop object being left
+     * @param used - flags of the supplies used at the RestStop
+     */
+    private void leave(Hiker h, RestStop stop, int used) {
+
+        if ((used & AXE) != 0)
+            h.addSupply(Supply.AXE);
+        if ((used & RAFT) != 0)
+            h.addSupply(Supply.RAFT);
+        if ((used & FOOD) != 0)
+            h.addSupply(Supply.FOOD);
+        h.removeSupplies(stop);
     }
 }
@@ -0,0 +1,540 @@
+package project4;
+
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A thread-safe binary search tree. The elements are ordered using their
+ * natural ordering.
+ * 
+ * The tree is persistent: nodes are never modified once they are reachable
+ * from the root. An update copies the O(logN) nodes on the path it changes
+ * (rebalancing them with AVL rotations) and publishes the new root with a single
+ * compare-and-set, retrying if another thread published first. Updates are
+ * therefore lock-free, and the read operations (contains, ceiling, floor,
+ * higher, lower, first, last, size) are wait-free: they read the root once and
+ * never block or retry.
+ * 
+ * Consistency model: every read operation and every iterator works on the
+ * version of the tree that was current when it read the root. An iterator
+ * returns exactly the elements present at the moment it was created, in
+ * ascending order, regardless of updates made while it is in use; it never
+ * throws a ConcurrentModificationException. size() is exact for the version it
+ * reads.
+ * 
+ * @author Kai Banda
+ * 
+ */
+public class ConcurrentBST<E extends Comparable<E>> implements Iterable<E> {
+
+    /**
+     * An immutable node of the tree, together with the height and size of the
+     * subtree rooted at it
+     */
+    private static final class Node<E> {
+        /**
+         * Node data value
+         */
+        final E data;
+        /**
+         * Left Node reference for a Node
+         */
+        final Node<E> left;
+        /**
+         * Right Node reference for a Node
+         */
+        final Node<E> right;
+        /**
+         * Height of the subtree rooted at this Node
+         */
+        final int height;
+        /**
+         * Number of nodes in the subtree rooted at this Node
+         */
+        final int size;
+
+        Node(E data, Node<E> left, Node<E> right) {
+            this.data = data;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    /**
+     * Reference to the root node of the current version of the tree
+     */
+    private final AtomicReference<Node<E>> root = new AtomicReference<Node<E>>();
+
+    /**
+     * Constructs a new, empty tree, sorted according to the natural ordering of its
+     * elements.
+     */
+    public ConcurrentBST() {
+
+    }
+
+    /**
+     * Adds the specified element to this tree if it is not already present.
+     * 
+     * @param e - element to be added to this tree
+     * @return true if this tree did not already contain the specified element
+     * @throws NullPointerException - if the specified element is null
+     */
+    public boolean add(E e) throws NullPointerException {
+        if (e == null)
+            throw new NullPointerException("added value cannot be null");
+
+        while (true) {
+            Node<E> current = root.get();
+            Node<E> updated = add(current, e);
+            if (updated == current)
+                return false;
+            if (root.compareAndSet(current, updated))
+                return true;
+        }
+    }
+
+    /**
+     * Recursive helper method for add method
+     * 
+     * @param n - root node reference of the subtree
+     * @param e - element to be added
+     * @return root of the new version of the subtree, or n itself if e is already
+     *         present
+     */
+    private Node<E> add(Node<E> n, E e) {
+
+        if (n == null)
+            return new Node<E>(e, null, null);
+
+        int cmp = e.compareTo(n.data);
+        if (cmp < 0) {
+            Node<E> left = add(n.left, e);
+            if (left == n.left)
+                return n;
+            return balance(n.data, left, n.right);
+        } else if (cmp > 0) {
+            Node<E> right = add(n.right, e);
+            if (right == n.right)
+                return n;
+            return balance(n.data, n.left, right);
+        }
+        return n;
+    }
+
+    /**
+     * Removes the specified element from this tree if it is present.
+     * 
+     * @param o - object to be removed from this tree, if present
+     * @return true if this tree contained the specified element
+     * @throws ClassCastException   - if the specified object cannot be compared
+     *                              with the elements currently in this tree
+     * @throws NullPointerException - if the specified element is null
+     */
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) throws ClassCastException, NullPointerException {
+        if (o == null)
+            throw new NullPointerException("object cannot be null");
+
+        try {
+            while (true) {
+                Node<E> current = root.get();
+                Node<E> updated = remove(current, (E) o);
+                if (updated == current)
+                    return false;
+                if (root.compareAndSet(current, updated))
+                    return true;
+            }
+        } catch (ClassCastException ex) {
+            throw new ClassCastException("types not the same");
+        }
+    }
+
+    /**
+     * Recursive helper method for remove method
+     * 
+     * @param n - root node reference of the subtree
+     * @param e - element to be removed
+     * @return root of the new version of the subtree, or n itself if e is not
+     *         present
+     */
+    private Node<E> remove(Node<E> n, E e) {
+
+        if (n == null)
+            return null;
+
+        int cmp = e.compareTo(n.data);
+        if (cmp < 0) {
+            Node<E> left = remove(n.left, e);
+            if (left == n.left)
+                return n;
+            return balance(n.data, left, n.right);
+        } else if (cmp > 0) {
+            Node<E> right = remove(n.right, e);
+            if (right == n.right)
+                return n;
+            return balance(n.data, n.left, right);
+        }
+        if (n.left == null)
+            return n.right;
+        if (n.right == null)
+            return n.left;
+        /**
+         * Successor takes the place of the removed element
+         */
+        Node<E> successor = n.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.data, n.left, removeFirst(n.right));
+    }
+
+    /**
+     * Returns a new version of a subtree without its smallest element
+     * 
+     * @param n - root node reference of the subtree
+     * @return root of the new version of the subtree
+     */
+    private Node<E> removeFirst(Node<E> n) {
+        if (n.left == null)
+            return n.right;
+        return balance(n.data, removeFirst(n.left), n.right);
+    }
+
+    /**
+     * Removes all of the elements from this tree.
+     */
+    public void clear() {
+        root.set(null);
+    }
+
+    /**
+     * Returns true if this tree contains the specified element.
+     * 
+     * @param o - object to be checked for containment in this tree
+     * @return true if this tree contains the specified element
+     * @throws ClassCastException   - if the specified object cannot be compared
+     *                              with the elements currently in the tree
+     * @throws NullPointerException - if the specified element is null
+     */
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) throws ClassCastException, NullPointerException {
+        if (o == null)
+            throw new NullPointerException("object cannot be null");
+
+        try {
+            E e = (E) o;
+            Node<E> n = root.get();
+            while (n != null) {
+                int cmp = e.compareTo(n.data);
+                if (cmp < 0)
+                    n = n.left;
+                else if (cmp > 0)
+                    n = n.right;
+                else
+                    return true;
+            }
+            return false;
+        } catch (ClassCastException ex) {
+            throw new ClassCastException("types not the same");
+        }
+    }
+
+    /**
+     * Returns the least element in this tree greater than or equal to the given
+     * element, or null if there is no such element.
+     * 
+     * @param e - the value to match
+     * @return the least element greater than or equal to e, or null if there is no
+     *         such element
+     * @throws NullPointerException - if the specified element is null
+     */
+    public E ceiling(E e) throws NullPointerException {
+        if (e == null)
+            throw new NullPointerException("element cannot be null");
+
+        Node<E> n = root.get();
+        E match = null;
+        while (n != null) {
+            int cmp = e.compareTo(n.data);
+            if (cmp == 0)
+                return n.data;
+            if (cmp < 0) {
+                match = n.data;
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Returns the greatest element in this tree less than or equal to the given
+     * element, or null if there is no such element.
+     * 
+     * @param e - the value to match
+     * @return the greatest element less than or equal to e, or null if there is no
+     *         such element
+     * @throws NullPointerException - if the specified element is null
+     */
+    public E floor(E e) throws NullPointerException {
+        if (e == null)
+            throw new NullPointerException("element cannot be null");
+
+        Node<E> n = root.get();
+        E match = null;
+        while (n != null) {
+            int cmp = e.compareTo(n.data);
+            if (cmp == 0)
+                return n.data;
+            if (cmp > 0) {
+                match = n.data;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Returns the least element in this tree strictly greater than the given
+     * element, or null if there is no such element.
+     * 
+     * @param e - the value to match
+     * @return the least element greater than e, or null if there is no such element
+     * @throws NullPointerException - if the specified element is null
+     */
+    public E higher(E e) throws NullPointerException {
+        if (e == null)
+            throw new NullPointerException("element cannot be null");
+
+        Node<E> n = root.get();
+        E match = null;
+        while (n != null) {
+            if (e.compareTo(n.data) < 0) {
+                match = n.data;
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Returns the greatest element in this tree strictly less than the given
+     * element, or null if there is no such element.
+     * 
+     * @param e - the value to match
+     * @return the greatest element less than e, or null if there is no such element
+     * @throws NullPointerException - if the specified element is null
+     */
+    public E lower(E e) throws NullPointerException {
+        if (e == null)
+            throw new NullPointerException("element cannot be null");
+
+        Node<E> n = root.get();
+        E match = null;
+        while (n != null) {
+            if (e.compareTo(n.data) > 0) {
+                match = n.data;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Returns the first (lowest) element currently in this tree.
+     * 
+     * @return the first (lowest) element currently in this tree
+     * @throws NoSuchElementException - if this tree is empty
+     */
+    public E first() throws NoSuchElementException {
+        Node<E> n = root.get();
+        if (n == null)
+            throw new NoSuchElementException("set is empty");
+
+        while (n.left != null) {
+            n = n.left;
+        }
+        return n.data;
+    }
+
+    /**
+     * Returns the last (highest) element currently in this tree.
+     * 
+     * @return the last (highest) element currently in this tree
+     * @throws NoSuchElementException - if this tree is empty
+     */
+    public E last() throws NoSuchElementException {
+        Node<E> n = root.get();
+        if (n == null)
+            throw new NoSuchElementException("set is empty");
+
+        while (n.right != null) {
+            n = n.right;
+        }
+        return n.data;
+    }
+
+    /**
+     * Returns the number of elements in this tree.
+     * 
+     * @return the number of elements in this tree
+     */
+    public int size() {
+        return size(root.get());
+    }
+
+    /**
+     * Returns true if this tree contains no elements.
+     * 
+     * @return true if this tree contains no elements
+     */
+    public boolean isEmpty() {
+        return root.get() == null;
+    }
+
+    /**
+     * Returns the height of this tree.
+     * 
+     * @return the height of this tree or zero if the tree is empty
+     */
+    public int height() {
+        return height(root.get());
+    }
+
+    /**
+     * Returns an iterator over the elements of the current version of this tree
+     * in ascending order. Updates made after this call are not seen by the
+     * iterator.
+     * 
+     * @return an iterator over a snapshot of the elements in ascending order
+     */
+    @Override
+    public java.util.Iterator<E> iterator() {
+        return new Iterator(root.get());
+    }
+
+    /**
+     * Inorder iterator over one version of the tree. Because nodes are immutable
+     * the version cannot change underneath it, so it needs no modification check.
+     */
+    private class Iterator implements java.util.Iterator<E> {
+
+        /**
+         * Nodes on the path to the next node to be returned; the top of the stack is
+         * the next node
+         */
+        private final ArrayList<Node<E>> stack = new ArrayList<Node<E>>();
+
+        /**
+         * Constructs an Iterator object over the subtree rooted at the given node
+         * 
+         * @param n - root of the version being iterated
+         */
+        Iterator(Node<E> n) {
+            pushLeft(n);
+        }
+
+        /**
+         * Pushes n and all of its left descendants onto the stack
+         * 
+         * @param n - root of the subtree
+         */
+        private void pushLeft(Node<E> n) {
+            while (n != null) {
+                stack.add(n);
+                n = n.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public E next() throws NoSuchElementException {
+            if (stack.isEmpty())
+                throw new NoSuchElementException("no more elements");
+
+            Node<E> c = stack.remove(stack.size() - 1);
+            pushLeft(c.right);
+            return c.data;
+        }
+    }
+
+    /**
+     * Returns a string representation of the current version of this tree, listing
+     * the elements in ascending order.
+     * Overrides toString in class Object
+     */
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer();
+        for (E e : this) {
+            sb.append(e + " ");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a node holding data with the given subtrees, applying the AVL
+     * rotation needed if their heights differ by more than one
+     * 
+     * @param data  - data value of the node
+     * @param left  - left subtree
+     * @param right - right subtree
+     * @return root of the balanced subtree
+     */
+    private static <E> Node<E> balance(E data, Node<E> left, Node<E> right) {
+        int balance = height(left) - height(right);
+        if (balance > 1) {
+            if (height(left.left) >= height(left.right))
+                return new Node<E>(left.data, left.left, new Node<E>(data, left.right, right));
+            Node<E> lr = left.right;
+            return new Node<E>(lr.data, new Node<E>(left.data, left.left, lr.left),
+                    new Node<E>(data, lr.right, right));
+        } else if (balance < -1) {
+            if (height(right.right) >= height(right.left))
+                return new Node<E>(right.data, new Node<E>(data, left, right.left), right.right);
+            Node<E> rl = right.left;
+            return new Node<E>(rl.data, new Node<E>(data, left, rl.left),
+                    new Node<E>(right.data, rl.right, right.right));
+        }
+        return new Node<E>(data, left, right);
+    }
+
+    /**
+     * Returns the height of a subtree
+     * 
+     * @param n - root of the subtree
+     * @return height of the subtree or zero if n is null
+     */
+    private static int height(Node<?> n) {
+        if (n == null)
+            return 0;
+        return n.height;
+    }
+
+    /**
+     * Returns the number of nodes in a subtree
+     * 
+     * @param n - root of the subtree
+     * @return size of the subtree or zero if n is null
+     */
+    private static int size(Node<?> n) {
+        if (n == null)
+            return 0;
+        return n.size;
+    }
+}
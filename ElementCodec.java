@@ -0,0 +1,34 @@
+package project4;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This interface represents the binary encoding of the elements of a BST, used
+ * to write a tree to a snapshot and to read it back.
+ * 
+ * @author Kai Banda
+ * 
+ * @param <E> - type of the elements encoded
+ */
+public interface ElementCodec<E> {
+
+    /**
+     * Writes an element
+     * 
+     * @param element - element to be written
+     * @param out     - output the element is written to
+     * @throws IOException - if the element cannot be written
+     */
+    void write(E element, DataOutput out) throws IOException;
+
+    /**
+     * Reads an element written by write
+     * 
+     * @param in - input the element is read from
+     * @return the element read, never null
+     * @throws IOException - if the element cannot be read or is not valid
+     */
+    E read(DataInput in) throws IOException;
+}
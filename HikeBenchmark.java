@@ -0,0 +1,211 @@
+package project4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class is a regression benchmark for repeated hikes of one mountain. It
+ * hikes the same BSTMountain object thousands of times, lists all of its paths
+ * just as often, and then hikes it from several threads at once, checking that
+ * every call returns the same paths as the first one. A hike or path list that
+ * keeps state between calls makes the results grow or differ, and the benchmark
+ * then fails with exit status 1.
+ * 
+ * @author Kai Banda
+ * 
+ */
+public class HikeBenchmark {
+
+    /**
+     * Number of rounds of each check when none is given on the command line
+     */
+    private static final int DEFAULT_ROUNDS = 5000;
+    /**
+     * Number of RestStop objects of the generated mountain
+     */
+    private static final int GENERATED_STOPS = (1 << 12) - 1;
+    /**
+     * Number of threads hiking the mountain at the same time
+     */
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Runs the benchmark and prints the time taken by each check. The first
+     * argument, if any, is the mountain file to be hiked; otherwise a mountain of
+     * GENERATED_STOPS RestStops with a fixed seed is hiked. The second argument,
+     * if any, is the number of rounds of each check.
+     * 
+     * @param args - optional mountain file and number of rounds
+     */
+    public static void main(String[] args) {
+
+        BSTMountain mountain;
+        int rounds = DEFAULT_ROUNDS;
+        try {
+            mountain = args.length > 0 ? MappedMountainReader.loadMountain(new File(args[0])) : generate();
+            if (args.length > 1)
+                rounds = Integer.parseInt(args[1]);
+        } catch (IOException e) {
+            System.err.println("Error: the file " + new File(args[0]).getAbsolutePath()
+                    + " cannot be opened for reading.");
+            System.exit(1);
+            return;
+        } catch (NumberFormatException e) {
+            System.err.println("Error: " + args[1] + " is not a number of rounds.");
+            System.exit(1);
+            return;
+        }
+
+        try {
+            run(mountain, rounds);
+        } catch (IllegalStateException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the checks of the benchmark on a mountain
+     * 
+     * @param mountain - mountain to be hiked
+     * @param rounds   - number of rounds of each check
+     * @throws IllegalStateException - if a call returns different paths than the
+     *                               first one
+     */
+    static void run(BSTMountain mountain, int rounds) throws IllegalStateException {
+
+        Hiker hiker = new Hiker();
+        int[] supplies = hiker.snapshot();
+        ArrayList<ArrayList<RestStop>> validPaths = mountain.hike(hiker);
+        ArrayList<ArrayList<RestStop>> allPaths = mountain.getAllPaths();
+        System.out.println("mountain: " + mountain.size() + " rest stops, " + allPaths.size() + " paths, "
+                + validPaths.size() + " valid");
+
+        /**
+         * Hiking the mountain again and again with the same Hiker object, which has
+         * to come back with the supplies it started with
+         */
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            check("hike " + i, validPaths, mountain.hike(hiker));
+            if (!Arrays.equals(supplies, hiker.snapshot()))
+                throw new IllegalStateException("hike " + i + " changed the supplies of the hiker");
+        }
+        report("repeated hike", rounds, start);
+
+        /**
+         * Listing all paths again and again
+         */
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            check("getAllPaths " + i, allPaths, mountain.getAllPaths());
+        }
+        report("repeated getAllPaths", rounds, start);
+
+        /**
+         * Hiking the mountain from several threads at once, each with its own Hiker
+         * object
+         */
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        ArrayList<Future<?>> hikes = new ArrayList<Future<?>>();
+        int perThread = Math.max(1, rounds / THREADS);
+        start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            hikes.add(pool.submit(() -> {
+                Hiker own = new Hiker();
+                for (int i = 0; i < perThread; i++) {
+                    check("concurrent hike", validPaths, mountain.hike(own));
+                }
+            }));
+        }
+        pool.shutdown();
+        try {
+            for (Future<?> hike : hikes) {
+                hike.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalStateException)
+                throw (IllegalStateException) e.getCause();
+            throw new IllegalStateException("concurrent hike failed: " + e.getCause());
+        }
+        report("concurrent hike on " + THREADS + " threads", perThread * THREADS, start);
+    }
+
+    /**
+     * Checks that a call returned the same paths as the first call
+     * 
+     * @param call     - name of the call, for the error message
+     * @param expected - paths returned by the first call
+     * @param actual   - paths returned by this call
+     * @throws IllegalStateException - if the paths differ
+     */
+    private static void check(String call, ArrayList<ArrayList<RestStop>> expected,
+            ArrayList<ArrayList<RestStop>> actual) throws IllegalStateException {
+
+        if (actual.size() != expected.size())
+            throw new IllegalStateException(
+                    call + " returned " + actual.size() + " paths instead of " + expected.size());
+        if (!actual.equals(expected))
+            throw new IllegalStateException(call + " returned different paths");
+    }
+
+    /**
+     * Prints the time taken by a check
+     * 
+     * @param check - name of the check
+     * @param calls - number of calls made by the check
+     * @param start - System.nanoTime() when the check started
+     */
+    private static void report(String check, int calls, long start) {
+
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%s: %d calls in %.1f ms (%.3f ms per call)%n", check, calls, millis, millis / calls);
+    }
+
+    /**
+     * Builds a mountain of GENERATED_STOPS RestStop objects with random supplies
+     * and obstacles, always the same for the same seed. The RestStops are added
+     * middle label first, so the mountain is a complete tree and every path ends
+     * on its lowest level.
+     * 
+     * @return BSTMountain - generated mountain
+     */
+    private static BSTMountain generate() {
+
+        Random random = new Random(16);
+        BSTMountain mountain = new BSTMountain();
+        ArrayDeque<int[]> ranges = new ArrayDeque<int[]>();
+        ranges.add(new int[] { 0, GENERATED_STOPS - 1 });
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.poll();
+            if (range[0] > range[1])
+                continue;
+            int mid = (range[0] + range[1]) >>> 1;
+            RestStop stop = new RestStop(String.format("%08d", mid));
+            stop.addSupply(Supply.FOOD, 1 + random.nextInt(2));
+            if (random.nextInt(8) == 0)
+                stop.addSupply(Supply.RAFT, 1);
+            if (random.nextInt(8) == 0)
+                stop.addSupply(Supply.AXE, 1);
+            if (random.nextInt(12) == 0)
+                stop.addObstacle(Obstacle.RIVER);
+            if (random.nextInt(12) == 0)
+                stop.addObstacle(Obstacle.FALLEN_TREE);
+            mountain.add(stop);
+            ranges.add(new int[] { range[0], mid - 1 });
+            ranges.add(new int[] { mid + 1, range[1] });
+        }
+        return mountain;
+    }
+}
@@ -1,6 +1,6 @@
 package project4;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * This class represents a hiker traveling down the mountain. An object of
@@ -10,15 +10,20 @@ import java.util.ArrayList;
  * way, or using the tools to clear the path from a broken tree, or cross the
  * river).
  * 
+ * Supplies are kept as one counter per kind of Supply, so collecting and using
+ * supplies takes constant time and never allocates, and the whole inventory
+ * can be saved and restored with snapshot and restore.
+ * 
  * @author Kai Banda
  * 
  */
 public class Hiker {
 
     /**
-     * Represents the supplies that this Hiker object is carrying
+     * Represents the number of each supply, indexed by Supply ordinal, that this
+     * Hiker object is carrying
      */
-    private ArrayList<String> supplies = new ArrayList<String>();
+    private final int[] supplies = new int[Supply.ALL.length];
 
     /**
      * Constructs a new Hiker object with no supplies
@@ -27,6 +32,17 @@ public class Hiker {
 
     }
 
+    /**
+     * Constructs a new Hiker object carrying the same supplies as another
+     * 
+     * @param other - Hiker object whose supplies are copied
+     */
+    public Hiker(Hiker other) {
+
+        System.arraycopy(other.supplies, 0, supplies, 0, supplies.length);
+
+    }
+
     /**
      * Adds all supplies from a given EestStop object to this Hiker object
      * 
@@ -34,31 +50,137 @@ public class Hiker {
      */
     public void addSupplies(RestStop stop) {
 
-        supplies.addAll(stop.getSupplies());
+        for (Supply supply : Supply.ALL) {
+            supplies[supply.ordinal()] += stop.getSupplyCount(supply);
+        }
 
     }
 
     /**
-     * Returns true if the ArrayList<String> object of supplies contains the supply
-     * (as a String), and removes that supply from the ArrayList<String> object
+     * Removes the supplies of a given RestStop object from this Hiker object,
+     * undoing a previous call to addSupplies with the same RestStop
      * 
-     * @param supply - name of supply to be removed
-     * @return true if the ArrayList<String> object of supplies contains the supply
-     *         (as a String)
+     * @param stop - RestStop whose supplies were added
      */
-    public boolean removeSupply(String supply) {
-        if (supplies.contains(supply)) {
-            supplies.remove(supplies.indexOf(supply));
+    public void removeSupplies(RestStop stop) {
+
+        for (Supply supply : Supply.ALL) {
+            supplies[supply.ordinal()] -= stop.getSupplyCount(supply);
+        }
+
+    }
+
+    /**
+     * Adds a single supply to this Hiker object
+     * 
+     * @param supply - supply to be added
+     */
+    public void addSupply(Supply supply) {
+
+        supplies[supply.ordinal()]++;
+
+    }
+
+    /**
+     * Adds a single supply to this Hiker object, undoing a previous successful call
+     * to removeSupply with the same supply
+     * 
+     * @param supply - name of supply to be added
+     * @throws IllegalArgumentException - if the name is not the name of a Supply
+     */
+    public void addSupply(String supply) throws IllegalArgumentException {
+
+        Supply s = Supply.fromName(supply);
+        if (s == null)
+            throw new IllegalArgumentException("unknown supply: " + supply);
+        addSupply(s);
+
+    }
+
+    /**
+     * Returns true if this Hiker object carries the supply, and removes one of that
+     * supply
+     * 
+     * @param supply - supply to be removed
+     * @return true if this Hiker object carried the supply
+     */
+    public boolean removeSupply(Supply supply) {
+        if (supplies[supply.ordinal()] > 0) {
+            supplies[supply.ordinal()]--;
             return true;
         } else
             return false;
 
     }
 
+    /**
+     * Returns true if this Hiker object carries the supply (as a String), and
+     * removes one of that supply
+     * 
+     * @param supply - name of supply to be removed
+     * @return true if this Hiker object carried the supply
+     */
+    public boolean removeSupply(String supply) {
+        Supply s = Supply.fromName(supply);
+        if (s == null)
+            return false;
+        return removeSupply(s);
+
+    }
+
+    /**
+     * Returns how many of a supply this Hiker object carries
+     * 
+     * @param supply - supply to be counted
+     * @return number of the supply carried
+     */
+    public int getSupplyCount(Supply supply) {
+        return supplies[supply.ordinal()];
+    }
+
+    /**
+     * Returns a copy of the supply counters of this Hiker object, indexed by Supply
+     * ordinal
+     * 
+     * @return int[] - saved inventory that can be passed to restore
+     */
+    public int[] snapshot() {
+        return supplies.clone();
+    }
+
+    /**
+     * Sets the supplies of this Hiker object to an inventory saved by snapshot
+     * 
+     * @param snapshot - inventory returned by snapshot
+     * @throws IllegalArgumentException - if snapshot does not have one counter per
+     *                                  Supply
+     */
+    public void restore(int[] snapshot) throws IllegalArgumentException {
+        if (snapshot.length != supplies.length)
+            throw new IllegalArgumentException("snapshot does not match supplies");
+        System.arraycopy(snapshot, 0, supplies, 0, supplies.length);
+    }
+
     /**
      * Clears all supplies from this Hiker object
      */
     public void clearSupplies() {
-        supplies.clear();
+        Arrays.fill(supplies, 0);
+    }
+
+    /**
+     * Returns a string representation of the supplies of this Hiker object
+     * 
+     * @return String - representation of this Hiker object
+     */
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer();
+        for (Supply supply : Supply.ALL) {
+            if (sb.length() > 0)
+                sb.append(" ");
+            sb.append(supply + "=" + supplies[supply.ordinal()]);
+        }
+        return sb.toString();
     }
-}
\ No newline at end of file
+}
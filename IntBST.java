@@ -0,0 +1,518 @@
+package project4;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+
+/**
+ * A self-balancing binary search tree of primitive int keys. It offers the same
+ * add, remove, contains, ceiling and floor operations as BST<Integer> but stores
+ * its nodes in parallel arrays: the key, left child index, right child index and
+ * height of node i live at position i of each array. No node objects or boxed
+ * keys are allocated, so the tree costs roughly 13 bytes per element and
+ * lookups touch contiguous memory.
+ * 
+ * The tree is kept balanced with AVL rotations, so the basic operations run in
+ * O(logN) time. Slots released by remove are reused by later calls to add.
+ * 
+ * @author Kai Banda
+ * 
+ */
+public class IntBST {
+
+    /**
+     * Index value representing a missing child or an empty tree
+     */
+    private static final int NIL = -1;
+
+    /**
+     * Key stored at each node
+     */
+    private int[] keys;
+    /**
+     * Index of the left child of each node, or NIL
+     */
+    private int[] left;
+    /**
+     * Index of the right child of each node, or NIL; also links the free list
+     */
+    private int[] right;
+    /**
+     * Height of the subtree rooted at each node
+     */
+    private byte[] height;
+
+    /**
+     * Index of the root node
+     */
+    private int root = NIL;
+    /**
+     * Number of keys in this tree
+     */
+    private int size;
+    /**
+     * Number of slots that have ever been handed out
+     */
+    private int used;
+    /**
+     * Head of the list of slots released by remove, linked through right
+     */
+    private int free = NIL;
+
+    /**
+     * Constructs a new, empty tree
+     */
+    public IntBST() {
+        this(16);
+    }
+
+    /**
+     * Constructs a new, empty tree with room for the given number of keys before
+     * its arrays need to grow
+     * 
+     * @param initialCapacity - number of keys to reserve room for
+     * @throws IllegalArgumentException - if initialCapacity is negative
+     */
+    public IntBST(int initialCapacity) throws IllegalArgumentException {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("capacity cannot be negative");
+
+        int capacity = Math.max(1, initialCapacity);
+        keys = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        height = new byte[capacity];
+    }
+
+    /**
+     * Adds the specified key to this tree if it is not already present.
+     * 
+     * @param key - key to be added to this tree
+     * @return true if this tree did not already contain the specified key
+     */
+    public boolean add(int key) {
+        int before = size;
+        root = add(root, key);
+        return size != before;
+    }
+
+    /**
+     * Recursive helper method for add method
+     * 
+     * @param n   - root node index of the subtree
+     * @param key - key to be added
+     * @return index of the root of the subtree after the key has been added
+     */
+    private int add(int n, int key) {
+
+        if (n == NIL) {
+            size++;
+            return newNode(key);
+        }
+        /**
+         * The child index is stored only after the recursive call returns, because
+         * the call may grow (and therefore replace) the arrays
+         */
+        if (key < keys[n]) {
+            int child = add(left[n], key);
+            left[n] = child;
+        } else if (key > keys[n]) {
+            int child = add(right[n], key);
+            right[n] = child;
+        } else {
+            return n;
+        }
+        return rebalance(n);
+    }
+
+    /**
+     * Removes the specified key from this tree if it is present.
+     * 
+     * @param key - key to be removed from this tree, if present
+     * @return true if this tree contained the specified key
+     */
+    public boolean remove(int key) {
+        int before = size;
+        root = remove(root, key);
+        return size != before;
+    }
+
+    /**
+     * Recursive helper method for remove method
+     * 
+     * @param n   - root node index of the subtree
+     * @param key - key to be removed
+     * @return index of the root of the subtree after the key has been removed
+     */
+    private int remove(int n, int key) {
+
+        if (n == NIL)
+            return NIL;
+
+        if (key < keys[n]) {
+            left[n] = remove(left[n], key);
+        } else if (key > keys[n]) {
+            right[n] = remove(right[n], key);
+        } else if (left[n] == NIL || right[n] == NIL) {
+            int child = left[n] != NIL ? left[n] : right[n];
+            release(n);
+            size--;
+            return child;
+        } else {
+            /**
+             * Successor takes the place of the removed key
+             */
+            int successor = right[n];
+            while (left[successor] != NIL) {
+                successor = left[successor];
+            }
+            keys[n] = keys[successor];
+            right[n] = remove(right[n], keys[successor]);
+        }
+        return rebalance(n);
+    }
+
+    /**
+     * Returns true if this tree contains the specified key.
+     * 
+     * @param key - key to be checked for containment in this tree
+     * @return true if this tree contains the specified key
+     */
+    public boolean contains(int key) {
+        int n = root;
+        while (n != NIL) {
+            if (key < keys[n])
+                n = left[n];
+            else if (key > keys[n])
+                n = right[n];
+            else
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the least key in this tree greater than or equal to the given key.
+     * 
+     * @param key - the value to match
+     * @return the least key greater than or equal to key, or an empty optional if
+     *         there is no such key
+     */
+    public OptionalInt ceiling(int key) {
+        int n = root;
+        int match = NIL;
+        while (n != NIL) {
+            if (keys[n] == key)
+                return OptionalInt.of(key);
+            if (keys[n] > key) {
+                match = n;
+                n = left[n];
+            } else {
+                n = right[n];
+            }
+        }
+        return result(match);
+    }
+
+    /**
+     * Returns the greatest key in this tree less than or equal to the given key.
+     * 
+     * @param key - the value to match
+     * @return the greatest key less than or equal to key, or an empty optional if
+     *         there is no such key
+     */
+    public OptionalInt floor(int key) {
+        int n = root;
+        int match = NIL;
+        while (n != NIL) {
+            if (keys[n] == key)
+                return OptionalInt.of(key);
+            if (keys[n] < key) {
+                match = n;
+                n = right[n];
+            } else {
+                n = left[n];
+            }
+        }
+        return result(match);
+    }
+
+    /**
+     * Returns the least key in this tree strictly greater than the given key.
+     * 
+     * @param key - the value to match
+     * @return the least key greater than key, or an empty optional if there is no
+     *         such key
+     */
+    public OptionalInt higher(int key) {
+        int n = root;
+        int match = NIL;
+        while (n != NIL) {
+            if (keys[n] > key) {
+                match = n;
+                n = left[n];
+            } else {
+                n = right[n];
+            }
+        }
+        return result(match);
+    }
+
+    /**
+     * Returns the greatest key in this tree strictly less than the given key.
+     * 
+     * @param key - the value to match
+     * @return the greatest key less than key, or an empty optional if there is no
+     *         such key
+     */
+    public OptionalInt lower(int key) {
+        int n = root;
+        int match = NIL;
+        while (n != NIL) {
+            if (keys[n] < key) {
+                match = n;
+                n = right[n];
+            } else {
+                n = left[n];
+            }
+        }
+        return result(match);
+    }
+
+    /**
+     * Returns the first (lowest) key currently in this tree.
+     * 
+     * @return the first (lowest) key currently in this tree
+     * @throws NoSuchElementException - if this tree is empty
+     */
+    public int first() throws NoSuchElementException {
+        if (root == NIL)
+            throw new NoSuchElementException("set is empty");
+
+        int n = root;
+        while (left[n] != NIL) {
+            n = left[n];
+        }
+        return keys[n];
+    }
+
+    /**
+     * Returns the last (highest) key currently in this tree.
+     * 
+     * @return the last (highest) key currently in this tree
+     * @throws NoSuchElementException - if this tree is empty
+     */
+    public int last() throws NoSuchElementException {
+        if (root == NIL)
+            throw new NoSuchElementException("set is empty");
+
+        int n = root;
+        while (right[n] != NIL) {
+            n = right[n];
+        }
+        return keys[n];
+    }
+
+    /**
+     * Returns the number of keys in this tree.
+     * 
+     * @return the number of keys in this tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if this tree contains no keys.
+     * 
+     * @return true if this tree contains no keys
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the height of this tree.
+     * 
+     * @return the height of this tree or zero if the tree is empty
+     */
+    public int height() {
+        return height(root);
+    }
+
+    /**
+     * Removes all of the keys from this tree. The arrays keep their capacity.
+     */
+    public void clear() {
+        root = NIL;
+        size = 0;
+        used = 0;
+        free = NIL;
+    }
+
+    /**
+     * Returns the keys of this tree in ascending order.
+     * 
+     * @return a new array containing all keys of this tree in ascending order
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        int[] stack = new int[height(root)];
+        int top = 0;
+        int count = 0;
+        int n = root;
+        /**
+         * Inorder traversal with an explicit stack of node indices
+         */
+        while (n != NIL || top > 0) {
+            if (n != NIL) {
+                stack[top++] = n;
+                n = left[n];
+            } else {
+                n = stack[--top];
+                result[count++] = keys[n];
+                n = right[n];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a string representation of this tree, listing the keys in ascending
+     * order.
+     * Overrides toString in class Object
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * Returns the key stored at a node wrapped in an optional
+     * 
+     * @param n - node index, or NIL
+     * @return the key at n, or an empty optional if n is NIL
+     */
+    private OptionalInt result(int n) {
+        if (n == NIL)
+            return OptionalInt.empty();
+        return OptionalInt.of(keys[n]);
+    }
+
+    /**
+     * Returns the height of a subtree
+     * 
+     * @param n - root node index of the subtree
+     * @return height of the subtree or zero if n is NIL
+     */
+    private int height(int n) {
+        if (n == NIL)
+            return 0;
+        return height[n];
+    }
+
+    /**
+     * Recomputes the height of a node from the heights of its children
+     * 
+     * @param n - node index to be updated
+     */
+    private void update(int n) {
+        height[n] = (byte) (1 + Math.max(height(left[n]), height(right[n])));
+    }
+
+    /**
+     * Restores the AVL balance of a node after one of its subtrees changed
+     * 
+     * @param n - node index to be rebalanced
+     * @return index of the root of the rebalanced subtree
+     */
+    private int rebalance(int n) {
+        update(n);
+        int balance = height(left[n]) - height(right[n]);
+        if (balance > 1) {
+            if (height(left[left[n]]) < height(right[left[n]]))
+                left[n] = rotateLeft(left[n]);
+            return rotateRight(n);
+        } else if (balance < -1) {
+            if (height(right[right[n]]) < height(left[right[n]]))
+                right[n] = rotateRight(right[n]);
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    /**
+     * Rotates the subtree rooted at n to the left
+     * 
+     * @param n - root node index of the subtree
+     * @return index of the new root of the subtree
+     */
+    private int rotateLeft(int n) {
+        int r = right[n];
+        right[n] = left[r];
+        left[r] = n;
+        update(n);
+        update(r);
+        return r;
+    }
+
+    /**
+     * Rotates the subtree rooted at n to the right
+     * 
+     * @param n - root node index of the subtree
+     * @return index of the new root of the subtree
+     */
+    private int rotateRight(int n) {
+        int l = left[n];
+        left[n] = right[l];
+        right[l] = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    /**
+     * Returns the index of a slot holding a new leaf with the given key, reusing a
+     * released slot if there is one and growing the arrays otherwise
+     * 
+     * @param key - key of the new leaf
+     * @return index of the new leaf
+     */
+    private int newNode(int key) {
+        int n;
+        if (free != NIL) {
+            n = free;
+            free = right[n];
+        } else {
+            if (used == keys.length)
+                grow();
+            n = used++;
+        }
+        keys[n] = key;
+        left[n] = NIL;
+        right[n] = NIL;
+        height[n] = 1;
+        return n;
+    }
+
+    /**
+     * Returns a slot to the free list
+     * 
+     * @param n - index of the slot that is no longer part of the tree
+     */
+    private void release(int n) {
+        right[n] = free;
+        free = n;
+    }
+
+    /**
+     * Grows the node arrays by half of their current capacity
+     */
+    private void grow() {
+        int capacity = keys.length + (keys.length >> 1) + 1;
+        keys = Arrays.copyOf(keys, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        height = Arrays.copyOf(height, capacity);
+    }
+}
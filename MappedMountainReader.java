@@ -0,0 +1,539 @@
+package project4;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class reads the rest stops of a mountain file by mapping the file into
+ * memory and scanning its bytes directly. Entries are split with the same rules
+ * as MountainClimb.CSVReader, but the keywords food, raft, axe, river, fallen and
+ * tree are recognized in place, so the only String created for a row is its
+ * label. Entries inside quotes are copied without the quotes before they are
+ * recognized.
+ * 
+ * The file is mapped one window at a time, so files larger than the address
+ * space of a single mapping can be read. Scanning bytes requires a charset in
+ * which spaces, quotes and line breaks are single ASCII bytes; for any other
+ * default charset loadMountain falls back to MountainClimb.CSVReader.
+ * 
+ * @author Kai Banda
+ * 
+ */
+public class MappedMountainReader implements Closeable {
+
+    /**
+     * Number of bytes mapped at a time, unless a single row is longer
+     */
+    private static final int WINDOW = 1 << 26;
+    /**
+     * Smallest number of bytes parsed by a task of loadMountainParallel
+     */
+    private static final long MIN_CHUNK = 1 << 20;
+    /**
+     * Keywords indexed by their token codes in MountainClimb
+     */
+    private static final byte[][] KEYWORDS = keywords();
+
+    /**
+     * Channel of the file being read
+     */
+    private final FileChannel channel;
+    /**
+     * Size of the file in bytes
+     */
+    private final long fileSize;
+    /**
+     * File position after the last byte to be read
+     */
+    private final long end;
+    /**
+     * True if the last row read ran into the end of the part of the file being
+     * read without ending there
+     */
+    private boolean cut;
+    /**
+     * Decoder of the labels, which reports bytes that are not valid in the charset
+     * like MountainClimb.CSVReader
+     */
+    private final CharsetDecoder decoder;
+    /**
+     * Mapped window of the file
+     */
+    private ByteBuffer window;
+    /**
+     * File position of the first byte of the window
+     */
+    private long windowStart;
+    /**
+     * Number of bytes mapped by the next window
+     */
+    private int windowSize = WINDOW;
+    /**
+     * Position in the window of the next row
+     */
+    private int next;
+    /**
+     * Codes of the entries after the label of the current row
+     */
+    private int[] codes = new int[8];
+    /**
+     * Number of codes of the current row
+     */
+    private int count;
+    /**
+     * Label of the current row, or null if the row has no entries yet
+     */
+    private String label;
+    /**
+     * Entry with its quotes removed
+     */
+    private byte[] unquoted = new byte[64];
+
+    /**
+     * Constructs a MappedMountainReader object that reads a file, decoding labels
+     * with the default charset
+     * 
+     * @param file - file from which the rest stops should be read
+     * @throws IOException - if the file cannot be opened or mapped
+     */
+    public MappedMountainReader(File file) throws IOException {
+        this(file, 0, -1);
+    }
+
+    /**
+     * Constructs a MappedMountainReader object that reads the rows of part of a
+     * file. The part has to start at the start of a row.
+     * 
+     * @param file  - file from which the rest stops should be read
+     * @param start - file position of the first byte to be read
+     * @param end   - file position after the last byte to be read, or -1 for the
+     *              end of the file
+     * @throws IOException - if the file cannot be opened or mapped
+     */
+    private MappedMountainReader(File file, long start, long end) throws IOException {
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        decoder = Charset.defaultCharset().newDecoder();
+        try {
+            fileSize = channel.size();
+            this.end = end < 0 ? fileSize : end;
+            map(start);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Builds a BSTMountain object from a mountain file like
+     * MountainClimb.loadMountain, scanning the mapped bytes of the file
+     * 
+     * @param file - mountain file to be read
+     * @return BSTMountain - mountain holding a RestStop for each row, added in
+     *         file order
+     * @throws IOException - if the file cannot be opened or read
+     */
+    public static BSTMountain loadMountain(File file) throws IOException {
+
+        if (!isAsciiCompatible(Charset.defaultCharset()))
+            return MountainClimb.loadMountain(file);
+
+        BSTMountain mountain = new BSTMountain();
+        try (MappedMountainReader reader = new MappedMountainReader(file)) {
+            RestStop restStop;
+            while ((restStop = reader.nextRestStop()) != null) {
+                mountain.add(restStop);
+            }
+        }
+        return mountain;
+    }
+
+    /**
+     * Builds a BSTMountain object from a mountain file like loadMountain, parsing
+     * parts of the file in parallel on the threads of the common ForkJoinPool
+     * 
+     * @param file - mountain file to be read
+     * @return BSTMountain - mountain holding a RestStop for each row, added in
+     *         file order
+     * @throws IOException - if the file cannot be opened or read
+     */
+    public static BSTMountain loadMountainParallel(File file) throws IOException {
+        return loadMountainParallel(file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds a BSTMountain object from a mountain file like loadMountain, parsing
+     * parts of the file in parallel on the threads of the given pool. The file is
+     * split into chunks that end at line breaks, each chunk is parsed into
+     * RestStop objects by its own task, and the RestStops are added to the
+     * mountain in file order, so the mountain has the same shape as with
+     * loadMountain. If a line break at the end of a chunk turns out to be inside
+     * quotes, the file is read again by loadMountain.
+     * 
+     * @param file - mountain file to be read
+     * @param pool - pool whose threads parse the chunks
+     * @return BSTMountain - mountain holding a RestStop for each row, added in
+     *         file order
+     * @throws IOException - if the file cannot be opened or read
+     */
+    public static BSTMountain loadMountainParallel(File file, ForkJoinPool pool) throws IOException {
+
+        long fileSize = file.length();
+        int chunks = (int) Math.min(pool.getParallelism() * 4L, fileSize / MIN_CHUNK);
+        if (chunks < 2 || !isAsciiCompatible(Charset.defaultCharset()))
+            return loadMountain(file);
+
+        /**
+         * Starts of the chunks, each moved forward to the start of a row
+         */
+        long[] starts = new long[chunks + 1];
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            fileSize = channel.size();
+            for (int k = 1; k < chunks; k++) {
+                starts[k] = rowStart(channel, Math.max(starts[k - 1], fileSize / chunks * k), fileSize);
+            }
+            starts[chunks] = fileSize;
+        }
+
+        ArrayList<ForkJoinTask<ArrayList<RestStop>>> tasks = new ArrayList<ForkJoinTask<ArrayList<RestStop>>>();
+        for (int k = 0; k < chunks; k++) {
+            long start = starts[k];
+            long end = starts[k + 1];
+            tasks.add(pool.submit(() -> readChunk(file, start, end)));
+        }
+
+        BSTMountain mountain = new BSTMountain();
+        for (ForkJoinTask<ArrayList<RestStop>> task : tasks) {
+            ArrayList<RestStop> stops;
+            try {
+                stops = task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while reading " + file);
+            } catch (ExecutionException e) {
+                /**
+                 * Rethrows what the task threw, as loadMountain would have thrown it. The
+                 * pool wraps an IOException thrown by the task in RuntimeExceptions, so it
+                 * is looked for along the chain of causes.
+                 */
+                Throwable cause = e.getCause();
+                for (Throwable t = cause; t != null; t = t.getCause()) {
+                    if (t instanceof IOException)
+                        throw (IOException) t;
+                }
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new IOException(cause);
+            }
+            if (stops == null) {
+                for (ForkJoinTask<ArrayList<RestStop>> other : tasks) {
+                    other.cancel(false);
+                }
+                return loadMountain(file);
+            }
+            for (RestStop restStop : stops) {
+                mountain.add(restStop);
+            }
+        }
+        return mountain;
+    }
+
+    /**
+     * Helper method for loadMountainParallel that parses one chunk of a file
+     * 
+     * @param file  - mountain file to be read
+     * @param start - file position of the start of the chunk
+     * @param end   - file position after the end of the chunk
+     * @return list of the RestStop objects of the chunk in file order, or null if
+     *         the last row of the chunk continues in the next chunk
+     * @throws IOException - if the file cannot be opened or read
+     */
+    private static ArrayList<RestStop> readChunk(File file, long start, long end) throws IOException {
+
+        ArrayList<RestStop> stops = new ArrayList<RestStop>();
+        try (MappedMountainReader reader = new MappedMountainReader(file, start, end)) {
+            RestStop restStop;
+            while ((restStop = reader.nextRestStop()) != null) {
+                stops.add(restStop);
+            }
+            return reader.cut ? null : stops;
+        }
+    }
+
+    /**
+     * Helper method for loadMountainParallel that finds the start of the first row
+     * that starts at or after a position
+     * 
+     * @param channel  - channel of the file
+     * @param position - file position to search from
+     * @param fileSize - size of the file
+     * @return file position after the first line break at or after position - 1,
+     *         or fileSize if there is none
+     * @throws IOException - if the file cannot be read
+     */
+    private static long rowStart(FileChannel channel, long position, long fileSize) throws IOException {
+
+        if (position == 0)
+            return 0;
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        position--;
+        while (position < fileSize) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    /**
+     * Checks whether spaces, quotes and line breaks are single ASCII bytes in a
+     * charset
+     * 
+     * @param charset - charset to be checked
+     * @return true if the bytes of a file in the charset can be scanned directly
+     */
+    static boolean isAsciiCompatible(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.ISO_8859_1)
+                || charset.equals(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns the RestStop object described by the next row that has any entries
+     * 
+     * @return the next RestStop, or null if there are no more rows
+     * @throws IOException - if the file cannot be mapped, a label cannot be
+     *                     decoded or the row lists more than RestStop.MAX_SUPPLY
+     *                     of one supply
+     */
+    public RestStop nextRestStop() throws IOException {
+
+        while (windowStart + next < end) {
+            if (scanRow() && label != null) {
+                try {
+                    return MountainClimb.toRestStop(label, codes, count);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(e.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Scans the row starting at the next position. If the row runs past the end of
+     * the window, the file is mapped again from the start of the row and the row is
+     * not consumed.
+     * 
+     * @return true if the row was scanned, or false if it has to be scanned again
+     * @throws IOException - if the file cannot be mapped or a label cannot be
+     *                     decoded
+     */
+    private boolean scanRow() throws IOException {
+
+        label = null;
+        count = 0;
+        int limit = window.limit();
+        int entryStart = next;
+        boolean quoted = false;
+        boolean insideQuotes = false;
+        int i = next;
+
+        /**
+         * iterate over all bytes up to the end of the row
+         */
+        while (true) {
+            if (i == limit) {
+                if (windowStart + limit < end) {
+                    remap();
+                    return false;
+                }
+                cut = end < fileSize;
+                break;
+            }
+            byte b = window.get(i);
+            if (b == '"') {
+                insideQuotes = !insideQuotes;
+                quoted = true;
+            } else if (b == '\n' && !insideQuotes) {
+                break;
+            } else if (b == ' ' && !insideQuotes) {
+                entry(entryStart, i, quoted, false);
+                entryStart = i + 1;
+                quoted = false;
+            }
+            i++;
+        }
+
+        /**
+         * like CSVReader, a line terminator at the very end of the file is not part of
+         * the last entry
+         */
+        next = i == limit ? i : i + 1;
+        int entryEnd = i;
+        if (windowStart + next == fileSize && entryEnd > entryStart && window.get(entryEnd - 1) == '\r')
+            entryEnd--;
+        entry(entryStart, entryEnd, quoted, true);
+        return true;
+    }
+
+    /**
+     * Helper method for scanRow that records an entry of the current row
+     * 
+     * @param start  - position in the window of the first byte of the entry
+     * @param end    - position in the window after the last byte of the entry
+     * @param quoted - true if the entry contains quotes
+     * @param last   - true if the entry ends the row, in which case it is trimmed
+     *               and only recorded if it is not empty
+     * @throws CharacterCodingException - if the entry is the label and it is not
+     *                                  valid in the charset
+     */
+    private void entry(int start, int end, boolean quoted, boolean last) throws CharacterCodingException {
+
+        ByteBuffer bytes = window;
+        if (quoted) {
+            if (unquoted.length < end - start)
+                unquoted = new byte[Math.max(end - start, unquoted.length * 2)];
+            int length = 0;
+            for (int i = start; i < end; i++) {
+                byte b = window.get(i);
+                if (b != '"')
+                    unquoted[length++] = b;
+            }
+            bytes = ByteBuffer.wrap(unquoted);
+            start = 0;
+            end = length;
+        }
+        if (last) {
+            if (start == end)
+                return;
+            /**
+             * trim the white space like String.trim
+             */
+            while (start < end && (bytes.get(start) & 0xFF) <= ' ') {
+                start++;
+            }
+            while (end > start && (bytes.get(end - 1) & 0xFF) <= ' ') {
+                end--;
+            }
+        }
+
+        if (label == null) {
+            label = decoder.decode(bytes.slice(start, end - start)).toString();
+        } else {
+            if (count == codes.length)
+                codes = Arrays.copyOf(codes, count * 2);
+            codes[count++] = code(bytes, start, end);
+        }
+    }
+
+    /**
+     * Returns the code of an entry, comparing its bytes with the keywords
+     * 
+     * @param bytes - bytes holding the entry
+     * @param start - position of the first byte of the entry
+     * @param end   - position after the last byte of the entry
+     * @return the token code of the entry in MountainClimb
+     */
+    private static int code(ByteBuffer bytes, int start, int end) {
+
+        for (int k = 0; k < KEYWORDS.length; k++) {
+            byte[] keyword = KEYWORDS[k];
+            if (keyword.length != end - start)
+                continue;
+            int i = 0;
+            while (i < keyword.length && bytes.get(start + i) == keyword[i]) {
+                i++;
+            }
+            if (i == keyword.length)
+                return k;
+        }
+        return MountainClimb.TOKEN_OTHER;
+    }
+
+    /**
+     * Maps the window of the file that starts at the start of the current row,
+     * growing the window if the row did not fit in it
+     * 
+     * @throws IOException - if the file cannot be mapped
+     */
+    private void remap() throws IOException {
+
+        if (next == 0)
+            windowSize = (int) Math.min((long) windowSize * 2, Integer.MAX_VALUE);
+        map(windowStart + next);
+    }
+
+    /**
+     * Maps the window of the file that starts at a position
+     * 
+     * @param position - file position of the first byte of the window
+     * @throws IOException - if the file cannot be mapped
+     */
+    private void map(long position) throws IOException {
+
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, end - position));
+        next = 0;
+    }
+
+    /**
+     * Returns the bytes of an ASCII keyword
+     * 
+     * @param keyword - keyword to be encoded
+     * @return the ASCII bytes of the keyword
+     */
+    private static byte[] ascii(String keyword) {
+        return keyword.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns the keywords of a mountain file indexed by their token codes in
+     * MountainClimb, taking the supply keywords from the names of Supply
+     * 
+     * @return the ASCII bytes of the keywords
+     */
+    private static byte[][] keywords() {
+
+        byte[][] keywords = new byte[MountainClimb.TOKENS][];
+        for (Supply supply : Supply.ALL) {
+            keywords[supply.ordinal()] = ascii(supply.getName());
+        }
+        keywords[MountainClimb.TOKEN_RIVER] = ascii("river");
+        keywords[MountainClimb.TOKEN_FALLEN] = ascii("fallen");
+        keywords[MountainClimb.TOKEN_TREE] = ascii("tree");
+        return keywords;
+    }
+
+    /**
+     * Closes the file; the mapped window is released when it is no longer
+     * referenced
+     * 
+     * @throws IOException - if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,9 +1,35 @@
 package project4;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 /**
  * This is the class that is the program. This means it has the main method.
@@ -17,125 +43,657 @@ import java.util.Scanner;
 public class MountainClimb {
 
     /**
-     * @param args
+     * Largest number of mountain files climbed at the same time in batch mode
+     */
+    private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+    /**
+     * Largest number of bytes of output held in memory for a mountain file that
+     * is waiting for earlier files to be printed
+     */
+    private static final int SPILL_SIZE = 1 << 20;
+    /**
+     * Token code of an entry without a meaning in a mountain file. The token code
+     * of an entry that names a Supply is the ordinal of that Supply, and the token
+     * codes of the obstacle words follow them.
+     */
+    static final int TOKEN_OTHER = -1;
+    /**
+     * Token code of the entry river
+     */
+    static final int TOKEN_RIVER = Supply.ALL.length;
+    /**
+     * Token code of the entry fallen
+     */
+    static final int TOKEN_FALLEN = TOKEN_RIVER + 1;
+    /**
+     * Token code of the entry tree
+     */
+    static final int TOKEN_TREE = TOKEN_RIVER + 2;
+    /**
+     * Number of token codes other than TOKEN_OTHER
+     */
+    static final int TOKENS = TOKEN_RIVER + 3;
+
+    /**
+     * Prints the valid paths down the mountain of each file named on the command
+     * line. An argument may be a file, a directory, whose .csv files are climbed
+     * in name order, or a glob pattern such as trails/*.csv. A single mountain
+     * file is climbed straight to the standard output. Several mountains are
+     * climbed at the same time on a bounded pool of threads, but the output of
+     * each file is printed in the order the files were named, under a header with
+     * the file name. The file whose turn it is prints as it climbs, and only the
+     * output of files still waiting for their turn is held back. A file that fails
+     * only reports its own error, and the program exits with status 1 if any file
+     * failed. Without arguments the file Tree.csv is climbed.
+     * 
+     * @param args - files, directories and glob patterns of mountain files
      */
     public static void main(String[] args) {
 
-        RestStop[] restStops;
+        /**
+         * Climbing Tree.csv as a single mountain if there is no argument in the
+         * command line
+         */
+        if (args.length == 0) {
+            String error = climb(new File("Tree.csv"), System.out);
+            if (error != null) {
+                System.err.println(error);
+                System.exit(1);
+            }
+            return;
+        }
 
         /**
-         * Printing an error message if there is no argument in the command line
+         * Expanding the arguments into the list of mountain files, keeping the order
+         * they were named in; an argument that names no file is reported in its place
          */
+        ArrayList<String> names = new ArrayList<String>();
+        ArrayList<File> treeFiles = new ArrayList<File>();
+        ArrayList<String> errors = new ArrayList<String>();
+        for (String arg : args) {
+            try {
+                for (File treeFile : expand(arg)) {
+                    names.add(treeFile.getPath());
+                    treeFiles.add(treeFile);
+                    errors.add(null);
+                }
+            } catch (IOException e) {
+                names.add(arg);
+                treeFiles.add(null);
+                errors.add("Error: " + e.getMessage() + "\n");
+            }
+        }
 
-        /*
-         * if (args.length == 0) {
-         * System.err.
-         * println("Usage Error: the program expects file name as an argument.\n");
-         * System.exit(1);
-         * }
-         * 
-         * /**
-         * Creating a new file with the command line argument as the file name and
-         * catching any errors if the file does not exist or can't be opened
+        /**
+         * Climbing a single mountain straight to the standard output
          */
-        File treeFile = new File("Tree.csv");
+        if (names.size() == 1) {
+            String error = errors.get(0);
+            if (error == null)
+                error = climb(treeFiles.get(0), System.out);
+            if (error != null) {
+                System.err.println(error);
+                System.exit(1);
+            }
+            return;
+        }
 
-        if (!treeFile.exists()) {
-            System.err.println("Error: the file " + treeFile.getAbsolutePath() + " does not exist.\n");
-            System.exit(1);
+        /**
+         * Climbing every mountain on its own thread with its own output, which is
+         * printed straight to the standard output once every earlier file has been
+         * printed and held back until then
+         */
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(MAX_THREADS, treeFiles.size())));
+        ArrayList<Climb> climbs = new ArrayList<Climb>();
+        ArrayList<Future<?>> tasks = new ArrayList<Future<?>>();
+        for (File treeFile : treeFiles) {
+            Climb climb = treeFile == null ? null : new Climb(treeFile);
+            climbs.add(climb);
+            tasks.add(climb == null ? null : pool.submit(climb::run));
         }
-        if (!treeFile.canRead()) {
-            System.err.println("Error: the file " + treeFile.getAbsolutePath() +
-                    " cannot be opened for reading.\n");
-            System.exit(1);
+        pool.shutdown();
+
+        boolean failed = false;
+        for (int i = 0; i < names.size(); i++) {
+            System.out.println((i > 0 ? "\n" : "") + "==> " + names.get(i) + " <==");
+            String error = errors.get(i);
+            if (error == null) {
+                Climb climb = climbs.get(i);
+                try {
+                    climb.release(System.out);
+                    tasks.get(i).get();
+                    error = climb.error;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    System.exit(1);
+                } catch (ExecutionException e) {
+                    error = "Error: the file " + treeFiles.get(i).getAbsolutePath() + " could not be climbed: "
+                            + e.getCause() + "\n";
+                } catch (IOException e) {
+                    error = "Error: the output of the file " + treeFiles.get(i).getAbsolutePath()
+                            + " could not be printed: " + e.getMessage() + "\n";
+                } finally {
+                    climb.discard();
+                }
+            }
+            System.out.flush();
+            if (error != null) {
+                System.err.println(error);
+                failed = true;
+            }
         }
 
+        if (failed)
+            System.exit(1);
+    }
+
+    /**
+     * Reads a mountain file and prints each valid path down the mountain for a
+     * hiker that starts without supplies, one path per line
+     * 
+     * @param treeFile - mountain file to be climbed
+     * @param out      - stream the paths are printed to
+     * @return the error message if the file could not be read, or null
+     */
+    static String climb(File treeFile, PrintStream out) {
+
         /**
-         * Creating a scanner object to be implemented in the CSV class and checking if
-         * it can be opened for reading
+         * Checking that the file exists and can be opened
          */
-        Scanner inTrees = null;
+        if (!treeFile.exists())
+            return "Error: the file " + treeFile.getAbsolutePath() + " does not exist.\n";
+        if (!treeFile.canRead())
+            return "Error: the file " + treeFile.getAbsolutePath() + " cannot be opened for reading.\n";
+
+        /**
+         * Scanning the mapped bytes of the file one row at a time and adding each
+         * RestStop to the mountain as soon as its row is parsed
+         */
+        BSTMountain mountain;
 
         try {
-            inTrees = new Scanner(treeFile);
-        } catch (FileNotFoundException e) {
-            System.err.println("Error: the file " + treeFile.getAbsolutePath() +
-                    " cannot be opened for reading.\n");
-            System.exit(1);
+            mountain = MappedMountainReader.loadMountain(treeFile);
+        } catch (FileSystemException e) {
+            return "Error: the file " + treeFile.getAbsolutePath() + " cannot be opened for reading.\n";
+        } catch (CharacterCodingException e) {
+            return "Error: the file " + treeFile.getAbsolutePath() + " is not valid text in the charset "
+                    + Charset.defaultCharset() + ".\n";
+        } catch (IOException e) {
+            return "Error: the file " + treeFile.getAbsolutePath() + " could not be read: " + e.getMessage() + "\n";
         }
 
         /**
-         * Passing the scanner into the CSV class and iterating over each row
+         * Traverses the mountain with a Hiker obejct using the BSTMountain's hike
+         * method, printing each valid path as soon as the hike finds it
          */
-        CSV csv = new CSV(inTrees);
-        restStops = new RestStop[csv.getNumOfRows()];
-        for (int i = 0; i < csv.getNumOfRows(); i++) {
-            /**
-             * Creating an ArrayList of strings for each row
-             */
-            ArrayList<String> line = csv.getNextRow();
-            RestStop restStop = new RestStop(line.get(0));
-            /**
-             * Boolean to check if supplies are allowed to be added (in the order supplies,
-             * obstacles)
-             */
-            boolean supplies = true;
-            boolean obstacles = true;
-            for (int n = 1; n < line.size(); n++) {
+        Hiker hiker = new Hiker();
 
-                if (line.get(n).equals("food") || line.get(n).equals("raft") || line.get(n).equals("axe")) {
-                    /**
-                     * Ignores supplies if obstacles have already been added
-                     */
-                    if (supplies == true) {
-                        restStop.addSupply(line.get(n));
-                    }
-                }
-                if (n + 1 < line.size()) {
-                    if (line.get(n).equals("fallen") && line.get(n + 1).equals("tree")) {
-                        if (obstacles == true) {
-                            restStop.addObstacle("fallen tree");
-                        }
-                        n++;
-                        supplies = false;
-                    }
+        mountain.hike(hiker, path -> {
+            for (int i = 0; i < path.size(); i++) {
+
+                out.print(path.get(i).toString());
+                if (i < path.size() - 1)
+                    out.print(" ");
+
+            }
+            out.println();
+            return true;
+        });
+
+        return null;
+    }
+
+    /**
+     * Output of climbing one mountain file in batch mode. Until release is called
+     * the output is held back, in memory up to SPILL_SIZE bytes and in a temporary
+     * file beyond that; afterwards it goes straight to the stream it was released
+     * to.
+     */
+    private static class Climb extends OutputStream {
+
+        /**
+         * Mountain file to be climbed
+         */
+        private final File treeFile;
+        /**
+         * Output held back in memory
+         */
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        /**
+         * Temporary file holding the output beyond SPILL_SIZE bytes, or null
+         */
+        private File spill;
+        /**
+         * Stream writing to the temporary file, or null
+         */
+        private OutputStream spillOut;
+        /**
+         * Stream the output goes to after release, or null before
+         */
+        private OutputStream target;
+        /**
+         * Error message of the file, or null if it was climbed
+         */
+        private volatile String error;
+
+        /**
+         * Constructs a Climb object for a mountain file
+         * 
+         * @param treeFile - mountain file to be climbed
+         */
+        Climb(File treeFile) {
+            this.treeFile = treeFile;
+        }
+
+        /**
+         * Climbs the mountain file, printing its paths to this Climb object
+         */
+        void run() {
+            PrintStream out = new PrintStream(new BufferedOutputStream(this, 1 << 16));
+            String message = climb(treeFile, out);
+            out.flush();
+            if (message == null && out.checkError())
+                message = "Error: the output of the file " + treeFile.getAbsolutePath() + " could not be written.\n";
+            error = message;
+        }
+
+        /**
+         * Writes the output held back so far to a stream and sends all further output
+         * straight to it
+         * 
+         * @param out - stream the output is printed to
+         * @throws IOException - if the temporary file cannot be read
+         */
+        synchronized void release(OutputStream out) throws IOException {
+            if (spillOut != null) {
+                spillOut.close();
+                spillOut = null;
+                Files.copy(spill.toPath(), out);
+            }
+            buffer.writeTo(out);
+            buffer = null;
+            target = out;
+        }
+
+        /**
+         * Deletes the temporary file, if any
+         */
+        synchronized void discard() {
+            try {
+                if (spillOut != null)
+                    spillOut.close();
+            } catch (IOException e) {
+                /**
+                 * The temporary file is deleted below even if it could not be closed
+                 */
+            }
+            spillOut = null;
+            if (spill != null)
+                spill.delete();
+            spill = null;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (target != null) {
+                target.write(b, off, len);
+            } else if (spillOut != null) {
+                spillOut.write(b, off, len);
+            } else if (buffer.size() + len <= SPILL_SIZE) {
+                buffer.write(b, off, len);
+            } else {
+                /**
+                 * Moving the output held in memory to a temporary file, which receives
+                 * all further output until release
+                 */
+                spill = File.createTempFile("climb", ".out");
+                spill.deleteOnExit();
+                spillOut = new BufferedOutputStream(new FileOutputStream(spill), 1 << 16);
+                buffer.writeTo(spillOut);
+                buffer.reset();
+                spillOut.write(b, off, len);
+            }
+        }
+    }
+
+    /**
+     * Expands a command line argument into the mountain files it names: the file
+     * itself, the .csv files of a directory in name order, or the files matching a
+     * glob pattern in path order
+     * 
+     * @param arg - file, directory or glob pattern
+     * @return list of the mountain files named by the argument
+     * @throws IOException - if a directory cannot be listed or has no .csv files,
+     *                     or no file matches a pattern
+     */
+    static List<File> expand(String arg) throws IOException {
+
+        ArrayList<File> files = new ArrayList<File>();
+        File file = new File(arg);
+
+        if (file.isDirectory()) {
+            File[] csvFiles = file.listFiles((dir, name) -> name.endsWith(".csv"));
+            if (csvFiles == null)
+                throw new IOException("the directory " + file.getAbsolutePath() + " cannot be listed.");
+            if (csvFiles.length == 0)
+                throw new IOException("the directory " + file.getAbsolutePath() + " has no .csv files.");
+            Arrays.sort(csvFiles);
+            files.addAll(Arrays.asList(csvFiles));
+            return files;
+        }
+
+        int glob = indexOfGlob(arg);
+        if (glob < 0 || file.exists()) {
+            files.add(file);
+            return files;
+        }
+
+        /**
+         * Walking the directory before the first pattern character, as deep as the
+         * pattern reaches
+         */
+        int slash = Math.max(arg.lastIndexOf('/', glob), arg.lastIndexOf(File.separatorChar, glob));
+        Path base = Paths.get(slash < 0 ? "." : arg.substring(0, slash + 1));
+        String pattern = slash < 0 ? arg : arg.substring(slash + 1);
+        int depth = arg.contains("**") ? Integer.MAX_VALUE : pattern.split("[/\\\\]").length;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+
+        if (Files.isDirectory(base)) {
+            try (Stream<Path> paths = Files.walk(base, depth)) {
+                paths.filter(p -> Files.isRegularFile(p) && matcher.matches(base.relativize(p))).sorted()
+                        .forEach(p -> files.add(p.toFile()));
+            }
+        }
+        if (files.isEmpty())
+            throw new IOException("no file matches the pattern " + arg + ".");
+        return files;
+    }
+
+    /**
+     * Helper method for expand that finds the first glob pattern character of an
+     * argument
+     * 
+     * @param arg - command line argument
+     * @return index of the first of the characters * ? [ { in arg, or -1
+     */
+    private static int indexOfGlob(String arg) {
+
+        for (int i = 0; i < arg.length(); i++) {
+            if ("*?[{".indexOf(arg.charAt(i)) >= 0)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Builds a BSTMountain object from a mountain file, reading it one row at a
+     * time so that memory use does not depend on the size of the file
+     * 
+     * @param file - mountain file to be read
+     * @return BSTMountain - mountain holding a RestStop for each row, added in
+     *         file order
+     * @throws IOException - if the file cannot be opened or read
+     */
+    public static BSTMountain loadMountain(File file) throws IOException {
+
+        BSTMountain mountain = new BSTMountain();
+        try (CSVReader reader = new CSVReader(file)) {
+            RestStop restStop;
+            while ((restStop = reader.nextRestStop()) != null) {
+                mountain.add(restStop);
+            }
+        }
+        return mountain;
+    }
+
+    /**
+     * Creates a RestStop object from the entries of a row. The first entry is the
+     * label; the entries after it are the supplies followed by the obstacles, and
+     * any supply listed after an obstacle is ignored.
+     * 
+     * @param line - entries of a row
+     * @return RestStop - the RestStop described by the row
+     * @throws IllegalArgumentException - if the row lists more than
+     *                                  RestStop.MAX_SUPPLY of one supply
+     */
+    public static RestStop toRestStop(List<String> line) throws IllegalArgumentException {
+
+        int[] codes = new int[line.size() - 1];
+        for (int n = 1; n < line.size(); n++) {
+            codes[n - 1] = code(line.get(n));
+        }
+        return toRestStop(line.get(0), codes, codes.length);
+    }
+
+    /**
+     * Returns the token code of an entry of a row
+     * 
+     * @param entry - entry to be classified
+     * @return the ordinal of the Supply named by the entry, one of TOKEN_RIVER,
+     *         TOKEN_FALLEN and TOKEN_TREE, or TOKEN_OTHER
+     */
+    static int code(String entry) {
+
+        switch (entry) {
+        case "food":
+            return Supply.FOOD.ordinal();
+        case "raft":
+            return Supply.RAFT.ordinal();
+        case "axe":
+            return Supply.AXE.ordinal();
+        case "river":
+            return TOKEN_RIVER;
+        case "fallen":
+            return TOKEN_FALLEN;
+        case "tree":
+            return TOKEN_TREE;
+        default:
+            return TOKEN_OTHER;
+        }
+    }
+
+    /**
+     * Creates a RestStop object from the label and the codes of the other entries
+     * of a row, following the same rules as toRestStop(List<String>)
+     * 
+     * @param label - first entry of the row
+     * @param codes - token codes of the entries after the label
+     * @param count - number of codes used
+     * @return RestStop - the RestStop described by the row
+     * @throws IllegalArgumentException - if the row lists more than
+     *                                  RestStop.MAX_SUPPLY of one supply
+     */
+    static RestStop toRestStop(String label, int[] codes, int count) throws IllegalArgumentException {
+
+        RestStop restStop = new RestStop(label);
+        /**
+         * Boolean to check if supplies are allowed to be added (in the order supplies,
+         * obstacles)
+         */
+        boolean supplies = true;
+        for (int n = 0; n < count; n++) {
+
+            if (codes[n] >= 0 && codes[n] < Supply.ALL.length) {
+                /**
+                 * Ignores supplies if obstacles have already been added
+                 */
+                if (supplies == true) {
+                    Supply supply = Supply.ALL[codes[n]];
+                    if (restStop.getSupplyCount(supply) == RestStop.MAX_SUPPLY)
+                        throw new IllegalArgumentException("the rest stop " + label + " has more than "
+                                + RestStop.MAX_SUPPLY + " " + supply.getName() + " supplies");
+                    restStop.addSupply(supply, 1);
                 }
-                if (line.get(n).equals("river")) {
-                    if (obstacles == true) {
-                        restStop.addObstacle("river");
-                    }
+            }
+            if (n + 1 < count) {
+                if (codes[n] == TOKEN_FALLEN && codes[n + 1] == TOKEN_TREE) {
+                    restStop.addObstacle(Obstacle.FALLEN_TREE);
+                    n++;
                     supplies = false;
                 }
             }
-            restStops[i] = restStop;
+            if (codes[n] == TOKEN_RIVER) {
+                restStop.addObstacle(Obstacle.RIVER);
+                supplies = false;
+            }
         }
+        return restStop;
+    }
+
+    /**
+     * Reads the rows of a mountain file one at a time from a buffered channel, so
+     * that only the current row is held in memory. Rows are split into entries
+     * exactly like CSV does, except that rows without any entries are skipped.
+     */
+    public static class CSVReader implements Closeable {
+
         /**
-         * Constructs a BSTMountain object with restStops from file read, and traverses
-         * the mountain with a Hiker obejct using the BSTMountain's hike method,
-         * displaying all valid paths down the BSTMountain with the given Hiker
+         * Characters decoded from the channel
          */
-        BSTMountain mountain = new BSTMountain(restStops);
-        Hiker hiker = new Hiker();
+        private final BufferedReader in;
 
-        ArrayList<ArrayList<RestStop>> allValidPaths = mountain.hike(hiker);
+        /**
+         * Entry being read
+         */
+        private final StringBuilder nextWord = new StringBuilder();
 
-        for (int n = 0; n < allValidPaths.size(); n++) {
-            for (int i = 0; i < allValidPaths.get(n).size(); i++) {
+        /**
+         * Constructs a CSVReader object that reads a file
+         * 
+         * @param file - file from which the rows should be read
+         * @throws IOException - if the file cannot be opened
+         */
+        public CSVReader(File file) throws IOException {
+            this(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+        }
 
-                System.out.print(allValidPaths.get(n).get(i).toString());
-                if (i < allValidPaths.get(n).size() - 1)
-                    System.out.print(" ");
+        /**
+         * Constructs a CSVReader object that reads a channel, decoding it with the
+         * default charset. Closing the CSVReader closes the channel.
+         * 
+         * @param channel - channel from which the rows should be read
+         * @throws NullPointerException when {@code channel} is null
+         */
+        public CSVReader(ReadableByteChannel channel) {
 
-            }
-            System.out.println();
+            if (channel == null)
+                throw new NullPointerException("channel is null");
 
+            in = new BufferedReader(Channels.newReader(channel, Charset.defaultCharset().newDecoder(), -1));
         }
 
+        /**
+         * Returns the entries of the next row
+         * 
+         * @return the next row, or null if there are no more rows
+         * @throws IOException - if the row cannot be read
+         */
+        public ArrayList<String> nextRow() throws IOException {
 
+            int nextChar = in.read();
+            while (nextChar >= 0) {
 
+                ArrayList<String> currentLine = new ArrayList<String>();
+                nextWord.setLength(0);
+                boolean insideQuotes = false;
+                int previous = -1;
 
-      //  System.out.println(mountain.toStringTreeFormat());
+                /**
+                 * iterate over all characters up to the end of the row
+                 */
+                while (nextChar >= 0) {
+                    if (nextChar == '"') {
+                        /**
+                         * quotes are field separators and are not part of the entry
+                         */
+                        insideQuotes = !insideQuotes;
+                    } else if (nextChar == '\n' && !insideQuotes) {
+                        /**
+                         * end of this row
+                         */
+                        break;
+                    } else if (nextChar == ' ' && !insideQuotes) {
+                        /**
+                         * end of entry found
+                         */
+                        currentLine.add(nextWord.toString());
+                        nextWord.setLength(0);
+                    } else {
+                        nextWord.append((char) nextChar);
+                    }
+                    previous = nextChar;
+                    nextChar = in.read();
+                }
+                /**
+                 * like CSV, a line terminator at the very end of the input is not part of
+                 * the last entry
+                 */
+                if (previous == '\r' && atEnd(nextChar))
+                    nextWord.setLength(nextWord.length() - 1);
+                /**
+                 * add the last word ( assuming not empty )
+                 * trim the white space before adding to the list
+                 */
+                if (nextWord.length() > 0) {
+                    currentLine.add(nextWord.toString().trim());
+                }
+                if (!currentLine.isEmpty())
+                    return currentLine;
+
+                nextChar = in.read();
+            }
+            return null;
+        }
+
+        /**
+         * Helper method for nextRow that checks whether a row ended at the end of the
+         * input
+         * 
+         * @param nextChar - character that ended the row, or -1 for the end of input
+         * @return true if there are no characters after the row
+         * @throws IOException - if the input cannot be read
+         */
+        private boolean atEnd(int nextChar) throws IOException {
+
+            if (nextChar < 0)
+                return true;
+            in.mark(1);
+            boolean end = in.read() < 0;
+            in.reset();
+            return end;
+        }
 
+        /**
+         * Returns the RestStop object described by the next row
+         * 
+         * @return the next RestStop, or null if there are no more rows
+         * @throws IOException - if the row cannot be read or lists more than
+         *                     RestStop.MAX_SUPPLY of one supply
+         */
+        public RestStop nextRestStop() throws IOException {
+
+            ArrayList<String> row = nextRow();
+            try {
+                return row == null ? null : toRestStop(row);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+
+        /**
+         * Closes the channel the rows are read from
+         * 
+         * @throws IOException - if the channel cannot be closed
+         */
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
     }
 
     public static class CSV {
@@ -318,7 +876,7 @@ public class MountainClimb {
          * ({@code "[]"}). Adjacent entries are separated by the characters
          * {@code ", "} (comma and space).
          * The rows are separated by a newline character {@code \n}.
-         *
+         * 
          * @return a string representation of this object
          */
         public String toString() {
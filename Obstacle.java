@@ -0,0 +1,99 @@
+package project4;
+
+/**
+ * This enum represents the kinds of obstacles that a hiker may encounter at a
+ * rest stop. Each obstacle has the name it is written with in the input file
+ * and a bit that identifies it in an obstacle mask.
+ * 
+ * @author Kai Banda
+ * 
+ */
+public enum Obstacle {
+
+    /**
+     * Crossed by using a raft
+     */
+    RIVER("river", Supply.RAFT),
+    /**
+     * Cleared by using an axe
+     */
+    FALLEN_TREE("fallen tree", Supply.AXE);
+
+    /**
+     * All obstacles in ordinal order, shared to avoid copying values()
+     */
+    static final Obstacle[] ALL = values();
+
+    /**
+     * Represents the name of the obstacle as written in the input file
+     */
+    private final String name;
+
+    /**
+     * Represents the supply a hiker uses to pass this obstacle
+     */
+    private final Supply remedy;
+
+    /**
+     * Constructs an Obstacle with the name it is written with and the supply that
+     * passes it
+     * 
+     * @param name   - name of the obstacle
+     * @param remedy - supply used to pass the obstacle
+     */
+    Obstacle(String name, Supply remedy) {
+        this.name = name;
+        this.remedy = remedy;
+    }
+
+    /**
+     * Returns the name of this Obstacle as written in the input file
+     * 
+     * @return String - name of this obstacle
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the supply a hiker uses to pass this Obstacle
+     * 
+     * @return Supply - supply used up by this obstacle
+     */
+    public Supply getRemedy() {
+        return remedy;
+    }
+
+    /**
+     * Returns the bit that represents this Obstacle in an obstacle mask
+     * 
+     * @return int - mask with only this obstacle's bit set
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Returns the Obstacle with the given name
+     * 
+     * @param name - name of the obstacle
+     * @return the Obstacle with the given name, or null if there is none
+     */
+    public static Obstacle fromName(String name) {
+        for (Obstacle obstacle : ALL) {
+            if (obstacle.name.equals(name))
+                return obstacle;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of this Obstacle
+     * 
+     * @return String - name of this obstacle
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
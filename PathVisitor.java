@@ -0,0 +1,24 @@
+package project4;
+
+import java.util.List;
+
+/**
+ * This interface represents a callback that receives the valid paths down a
+ * BSTMountain one at a time as the mountain is hiked, so the paths never have
+ * to be collected in memory.
+ * 
+ * @author Kai Banda
+ * 
+ */
+@FunctionalInterface
+public interface PathVisitor {
+
+    /**
+     * Receives the next valid path down the mountain. The list is a read-only view
+     * that is only valid during this call; copy it to keep the path.
+     * 
+     * @param path - RestStop objects from the top to the bottom of the mountain
+     * @return true to continue hiking, or false to stop after this path
+     */
+    boolean visit(List<RestStop> path);
+}
@@ -1,6 +1,7 @@
 package project4;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.List;
 
 /**
  * This class represents a single rest stop. It is capable of
@@ -8,19 +9,41 @@ import java.util.ArrayList;
  * hiker can collect at this rest-stop and a list of obstacles that a hiker may
  * encounter at this rest-stop. It implements the Comparable interface.
  * 
+ * Supplies are stored as a count per kind of Supply packed into a single long,
+ * and obstacles as a bit mask with one bit per kind of Obstacle, so a RestStop
+ * holds no collections and the hike can check it with integer operations. Each
+ * count gets SUPPLY_BITS bits, so a RestStop holds at most MAX_SUPPLY
+ * (2,097,151) of each supply.
+ * 
+ * A RestStop should be complete before it is added to a BSTMountain: cached
+ * hikes and path indexes of the mountain are not told when supplies or
+ * obstacles are added to a RestStop it already holds.
+ * 
  * @author Kai Banda
  * 
  */
 public class RestStop implements Comparable<RestStop> {
 
     /**
-     * Represents all of the supplies contained in this RestStop object
+     * Number of bits used for the count of each supply, so the counts of the three
+     * supplies fit in a long
+     */
+    private static final int SUPPLY_BITS = 21;
+    /**
+     * Largest count that can be stored for a single supply
+     */
+    static final int MAX_SUPPLY = (1 << SUPPLY_BITS) - 1;
+
+    /**
+     * Represents the number of each supply contained in this RestStop object, with
+     * SUPPLY_BITS bits per Supply ordinal
      */
-    private ArrayList<String> supplies = new ArrayList<String>();
+    private long supplies;
     /**
-     * Represents all of the obstacles contained in this RestStop object
+     * Represents all of the obstacles contained in this RestStop object, with one
+     * bit per Obstacle
      */
-    private ArrayList<String> obstacles = new ArrayList<String>();
+    private int obstacles;
     /**
      * Represents the name of the RestStop obejct
      */
@@ -38,47 +61,154 @@ public class RestStop implements Comparable<RestStop> {
     }
 
     /**
-     * Adds a supply to the ArrayList<String> object that represents the supplies at
-     * this RestStop
+     * Adds a supply to the supplies at this RestStop
      * 
      * @param supply - name of supply to be added
+     * @throws IllegalArgumentException - if the name is not the name of a Supply
+     */
+    public void addSupply(String supply) throws IllegalArgumentException {
+
+        Supply s = Supply.fromName(supply);
+        if (s == null)
+            throw new IllegalArgumentException("unknown supply: " + supply);
+        addSupply(s, 1);
+
+    }
+
+    /**
+     * Adds a number of one supply to the supplies at this RestStop
+     * 
+     * @param supply - supply to be added
+     * @param count  - number of the supply to be added
+     * @throws IllegalArgumentException - if count is negative or the total would
+     *                                  exceed MAX_SUPPLY
      */
-    public void addSupply(String supply) {
+    public void addSupply(Supply supply, int count) throws IllegalArgumentException {
 
-        supplies.add(supply);
+        if (count < 0 || count > MAX_SUPPLY - getSupplyCount(supply))
+            throw new IllegalArgumentException("supply count out of range");
+        int total = getSupplyCount(supply) + count;
+        int shift = supply.ordinal() * SUPPLY_BITS;
+        supplies = supplies & ~((long) MAX_SUPPLY << shift) | (long) total << shift;
 
     }
 
     /**
-     * Adds an obstacle to the ArrayList<String> object that represents the
-     * obstacles at this RestStop
+     * Adds an obstacle to the obstacles at this RestStop
      * 
      * @param obstacle - name of the obstacle to be added
+     * @throws IllegalArgumentException - if the name is not the name of an
+     *                                  Obstacle
      */
-    public void addObstacle(String obstacle) {
+    public void addObstacle(String obstacle) throws IllegalArgumentException {
 
-        obstacles.add(obstacle);
+        Obstacle o = Obstacle.fromName(obstacle);
+        if (o == null)
+            throw new IllegalArgumentException("unknown obstacle: " + obstacle);
+        addObstacle(o);
 
     }
 
     /**
-     * Returns a list of all supplies at this RestStop
+     * Adds an obstacle to the obstacles at this RestStop
      * 
-     * @return ArrayList<String> - list of supplies in this RestStop object
+     * @param obstacle - obstacle to be added
      */
-    public ArrayList<String> getSupplies() {
-        return supplies;
+    public void addObstacle(Obstacle obstacle) {
+
+        obstacles |= obstacle.bit();
+
     }
 
     /**
-     * Returns a list of all obstacles at this RestStop
+     * Returns the number of a supply at this RestStop
      * 
-     * @return ArrayList<String> - list of obstacles in this RestStop object
+     * @param supply - supply to be counted
+     * @return int - number of the supply in this RestStop object
      */
-    public ArrayList<String> getObstacles() {
+    public int getSupplyCount(Supply supply) {
+        return (int) (supplies >>> (supply.ordinal() * SUPPLY_BITS)) & MAX_SUPPLY;
+    }
+
+    /**
+     * Returns the obstacles at this RestStop as a mask of Obstacle bits
+     * 
+     * @return int - obstacle mask of this RestStop object
+     */
+    public int getObstacleMask() {
         return obstacles;
     }
 
+    /**
+     * Returns true if the obstacle is at this RestStop
+     * 
+     * @param obstacle - obstacle to be checked
+     * @return true if this RestStop object has the obstacle
+     */
+    public boolean hasObstacle(Obstacle obstacle) {
+        return (obstacles & obstacle.bit()) != 0;
+    }
+
+    /**
+     * Returns a list of all supplies at this RestStop, grouped by kind of supply.
+     * The list is a read-only view of the supply counts.
+     * 
+     * @return List<String> - list of supplies in this RestStop object
+     */
+    public List<String> getSupplies() {
+        return new AbstractList<String>() {
+
+            @Override
+            public String get(int index) {
+                if (index >= 0) {
+                    for (Supply supply : Supply.ALL) {
+                        int count = getSupplyCount(supply);
+                        if (index < count)
+                            return supply.getName();
+                        index -= count;
+                    }
+                }
+                throw new IndexOutOfBoundsException("index out of bounds");
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (Supply supply : Supply.ALL) {
+                    size += getSupplyCount(supply);
+                }
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns a list of all obstacles at this RestStop. The list is a read-only
+     * view of the obstacle mask.
+     * 
+     * @return List<String> - list of obstacles in this RestStop object
+     */
+    public List<String> getObstacles() {
+        return new AbstractList<String>() {
+
+            @Override
+            public String get(int index) {
+                if (index >= 0) {
+                    for (Obstacle obstacle : Obstacle.ALL) {
+                        if (hasObstacle(obstacle) && index-- == 0)
+                            return obstacle.getName();
+                    }
+                }
+                throw new IndexOutOfBoundsException("index out of bounds");
+            }
+
+            @Override
+            public int size() {
+                return Integer.bitCount(obstacles);
+            }
+        };
+    }
+
     /**
      * Returns the name of this RestStop
      * 
@@ -109,4 +239,33 @@ public class RestStop implements Comparable<RestStop> {
     public int compareTo(RestStop o) {
         return this.getLabel().compareTo(o.getLabel());
     }
+
+    /**
+     * Returns true if the passed object is a RestStop object with the same label,
+     * consistent with compareTo, so mountains holding RestStops with the same
+     * labels are equal
+     * Overrides equals in class Object
+     * 
+     * @param obj - object to be compared
+     * @return true if obj is a RestStop object with the same label
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof RestStop))
+            return false;
+        return label.equals(((RestStop) obj).label);
+    }
+
+    /**
+     * Returns the hash code of the label of this RestStop object
+     * Overrides hashCode in class Object
+     * 
+     * @return int - hash code of this RestStop object
+     */
+    @Override
+    public int hashCode() {
+        return label.hashCode();
+    }
 }
@@ -0,0 +1,93 @@
+package project4;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This class is a regression check for the equality of mountains. Each mountain
+ * file named on the command line is loaded twice, once by
+ * MountainClimb.loadMountain and once by MappedMountainReader.loadMountain, and
+ * written to a snapshot that is read back. The two loaded mountains and the
+ * mountain read from the snapshot have to be equal, with equal hash codes and
+ * equal hikes, otherwise the check fails with exit status 1.
+ * 
+ * @author Kai Banda
+ * 
+ */
+public class SnapshotCheck {
+
+    /**
+     * Runs the check on each mountain file named on the command line, or on
+     * Tree.csv without arguments
+     * 
+     * @param args - mountain files to be checked
+     */
+    public static void main(String[] args) {
+
+        String[] names = args.length == 0 ? new String[] { "Tree.csv" } : args;
+        boolean failed = false;
+        for (String name : names) {
+            File treeFile = new File(name);
+            if (!treeFile.exists()) {
+                System.err.println("Error: the file " + treeFile.getAbsolutePath() + " does not exist.");
+                failed = true;
+                continue;
+            }
+            try {
+                check(treeFile);
+                System.out.println(name + ": ok");
+            } catch (IOException e) {
+                System.err.println("Error: the file " + treeFile.getAbsolutePath() + " could not be read: "
+                        + e.getMessage());
+                failed = true;
+            } catch (IllegalStateException e) {
+                System.err.println("Error: " + name + ": " + e.getMessage());
+                failed = true;
+            }
+        }
+        if (failed)
+            System.exit(1);
+    }
+
+    /**
+     * Checks one mountain file
+     * 
+     * @param treeFile - mountain file to be checked
+     * @throws IOException           - if the file or the snapshot cannot be read or
+     *                               written
+     * @throws IllegalStateException - if the mountains are not equal
+     */
+    static void check(File treeFile) throws IOException, IllegalStateException {
+
+        BSTMountain streamed = MountainClimb.loadMountain(treeFile);
+        BSTMountain mapped = MappedMountainReader.loadMountain(treeFile);
+        compare("the mountains loaded by MountainClimb and MappedMountainReader", streamed, mapped);
+
+        File snapshot = File.createTempFile("mountain", ".snapshot");
+        try {
+            streamed.writeSnapshot(snapshot);
+            compare("the mountain and its snapshot", streamed, BSTMountain.readSnapshot(snapshot));
+        } finally {
+            snapshot.delete();
+        }
+    }
+
+    /**
+     * Checks that two mountains are equal, have equal hash codes and give the same
+     * hike
+     * 
+     * @param what   - description of the mountains, for the error message
+     * @param first  - first mountain
+     * @param second - second mountain
+     * @throws IllegalStateException - if the mountains differ
+     */
+    private static void compare(String what, BSTMountain first, BSTMountain second) throws IllegalStateException {
+
+        if (!first.equals(second) || !second.equals(first))
+            throw new IllegalStateException(what + " are not equal");
+        if (first.hashCode() != second.hashCode())
+            throw new IllegalStateException(what + " have different hash codes");
+        if (!first.hike(new Hiker()).equals(second.hike(new Hiker())))
+            throw new IllegalStateException(what + " give different hikes");
+    }
+}
@@ -0,0 +1,76 @@
+package project4;
+
+/**
+ * This enum represents the kinds of supplies that a hiker can collect at a
+ * rest stop. Each supply has the name it is written with in the input file.
+ * 
+ * @author Kai Banda
+ * 
+ */
+public enum Supply {
+
+    /**
+     * Eaten at every rest stop the hiker moves on from
+     */
+    FOOD("food"),
+    /**
+     * Used to cross a river
+     */
+    RAFT("raft"),
+    /**
+     * Used to clear a fallen tree
+     */
+    AXE("axe");
+
+    /**
+     * All supplies in ordinal order, shared to avoid copying values()
+     */
+    static final Supply[] ALL = values();
+
+    /**
+     * Represents the name of the supply as written in the input file
+     */
+    private final String name;
+
+    /**
+     * Constructs a Supply with the name it is written with
+     * 
+     * @param name - name of the supply
+     */
+    Supply(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of this Supply as written in the input file
+     * 
+     * @return String - name of this supply
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the Supply with the given name
+     * 
+     * @param name - name of the supply
+     * @return the Supply with the given name, or null if there is none
+     */
+    public static Supply fromName(String name) {
+        for (Supply supply : ALL) {
+            if (supply.name.equals(name))
+                return supply;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of this Supply
+     * 
+     * @return String - name of this supply
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}